@@ -36,4 +36,18 @@ public class Constants {
     public static Preferences getPreferences() {
         return Preferences.userNodeForPackage(Constants.class);
     }
+
+    /**
+     * Returns the value of the system property <code>jiracli.&lt;name&gt;</code> or the given default value
+     */
+    public static int getInteger(String name, int defaultValue) {
+        return Integer.getInteger(getName().toLowerCase() + "." + name, defaultValue);
+    }
+
+    /**
+     * Returns <code>true</code> if the system property <code>jiracli.&lt;name&gt;</code> is set to true
+     */
+    public static boolean getBoolean(String name) {
+        return Boolean.getBoolean(getName().toLowerCase() + "." + name);
+    }
 }
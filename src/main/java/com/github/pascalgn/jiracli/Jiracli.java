@@ -19,6 +19,7 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Window;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -43,6 +44,7 @@ import com.github.pascalgn.jiracli.context.DefaultJavaScriptEngine;
 import com.github.pascalgn.jiracli.context.JavaScriptEngine;
 import com.github.pascalgn.jiracli.context.WebService;
 import com.github.pascalgn.jiracli.gui.ConsoleWindow;
+import com.github.pascalgn.jiracli.util.SystemUtils;
 import com.github.pascalgn.jiracli.web.DefaultWebService;
 
 /**
@@ -197,7 +199,8 @@ public class Jiracli {
     }
 
     private static Context createDefaultContext(final Configuration configuration, Console console) {
-        final WebService webService = new DefaultWebService(console);
+        File cacheDirectory = new File(SystemUtils.getHome(Constants.getName()), "cache");
+        final WebService webService = new DefaultWebService(console, cacheDirectory);
         final JavaScriptEngine javaScriptEngine = new DefaultJavaScriptEngine(console, webService);
         final Context context = new DefaultContext(configuration, console, webService, javaScriptEngine);
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pascalgn.jiracli.command.Argument.Parameters;
+import com.github.pascalgn.jiracli.context.Console;
+import com.github.pascalgn.jiracli.context.Context;
+import com.github.pascalgn.jiracli.context.WebService;
+import com.github.pascalgn.jiracli.model.Attachment;
+import com.github.pascalgn.jiracli.model.AttachmentList;
+import com.github.pascalgn.jiracli.model.Data;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.IOUtils;
+import com.github.pascalgn.jiracli.util.OrderedExecutor;
+
+@CommandDescription(names = "attach", description = "Upload files as attachments of the given issues")
+class Attach implements Command {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Attach.class);
+
+    @Argument(names = { "-J", "--jobs" }, parameters = Parameters.ONE, variable = "<count>",
+            description = "number of issues to upload to concurrently")
+    private int jobs = 4;
+
+    @Argument(parameters = Parameters.ONE_OR_MORE, variable = "<file>", description = "the files to upload")
+    private List<String> paths;
+
+    public Attach() {
+        // default constructor
+    }
+
+    Attach(List<String> paths, int jobs) {
+        this.paths = paths;
+        this.jobs = jobs;
+    }
+
+    @Override
+    public Data execute(Context context, Data input) {
+        final List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = IOUtils.getFile(path);
+            if (!file.isFile()) {
+                throw new IllegalArgumentException("File does not exist: " + path);
+            }
+            files.add(file);
+        }
+
+        IssueList issueList = input.toIssueListOrFail();
+
+        Console console = context.getConsole();
+        final WebService webService = context.getWebService();
+
+        OrderedExecutor<Issue, List<Attachment>> executor = new OrderedExecutor<>("Upload", jobs, jobs);
+
+        List<Attachment> attachments = new ArrayList<>();
+        try {
+            Issue issue;
+            while ((issue = issueList.next(Hint.none())) != null) {
+                if (executor.isFull()) {
+                    attachments.addAll(complete(console, executor.take()));
+                }
+                final Issue target = issue;
+                executor.submit(issue, new Callable<List<Attachment>>() {
+                    @Override
+                    public List<Attachment> call() {
+                        return webService.addAttachments(target, files);
+                    }
+                });
+            }
+            while (!executor.isEmpty()) {
+                attachments.addAll(complete(console, executor.take()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        return new AttachmentList(attachments.iterator());
+    }
+
+    private static List<Attachment> complete(Console console, OrderedExecutor.Result<Issue, List<Attachment>> result) {
+        Exception error = result.getError();
+        if (error == null) {
+            return result.get();
+        }
+        LOGGER.info("Error uploading attachments: {}", result.getItem(), error);
+        console.println("Could not attach files to " + result.getItem() + ": " + error.getMessage());
+        return new ArrayList<>();
+    }
+}
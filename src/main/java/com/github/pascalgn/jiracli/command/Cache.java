@@ -15,20 +15,39 @@
  */
 package com.github.pascalgn.jiracli.command;
 
+import com.github.pascalgn.jiracli.context.Console;
 import com.github.pascalgn.jiracli.context.Context;
+import com.github.pascalgn.jiracli.context.WebService;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.None;
 
-@CommandDescription(names = "cache", description = "Clear the cached values")
+@CommandDescription(names = "cache", description = "Show, prune or clear the cached values")
 class Cache implements Command {
     @Argument(names = { "-c", "--clear" }, description = "clear the cache")
     private boolean clear = false;
 
+    @Argument(names = { "-p", "--prune" }, description = "remove expired entries from the persistent cache")
+    private boolean prune = false;
+
+    @Argument(names = { "-i", "--info" }, description = "show information about the cached entries")
+    private boolean info = false;
+
     @Override
     public Data execute(final Context context, Data input) {
+        WebService.Cache cache = context.getWebService().getCache();
+        Console console = context.getConsole();
         if (clear) {
-            context.getWebService().getCache().clear();
-            context.getConsole().println("Cache cleared.");
+            cache.clear();
+            console.println("Cache cleared.");
+        }
+        if (prune) {
+            int removed = cache.prune();
+            console.println("Removed " + removed + " expired entries.");
+        }
+        if (info) {
+            for (String line : cache.getInfo()) {
+                console.println(line);
+            }
         }
         return None.getInstance();
     }
@@ -27,7 +27,7 @@ final class CommandList {
             Config.class, Fields.class, Attachments.class, Download.class, Links.class, Set.class, Json.class,
             Clipboard.class, Transitions.class, Cache.class, Count.class, History.class, Link.class, Changelog.class,
             Status.class, Open.class, Write.class, Csv.class, Parse.class, Load.class, Authenticate.class, Hex.class,
-            Comments.class, Parent.class, AddComment.class, Properties.class);
+            Comments.class, Parent.class, AddComment.class, Properties.class, Attach.class);
 
     private CommandList() {
         // don't allow instances
@@ -17,10 +17,12 @@ package com.github.pascalgn.jiracli.command;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
 
 import com.github.pascalgn.jiracli.context.Context;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.IssueHint;
+import com.github.pascalgn.jiracli.model.List;
 import com.github.pascalgn.jiracli.model.Text;
 import com.github.pascalgn.jiracli.util.Hint;
 
@@ -28,8 +30,13 @@ import com.github.pascalgn.jiracli.util.Hint;
 class Count implements Command {
     @Override
     public Text execute(final Context context, Data input) {
+        Set<Hint> hints = Collections.<Hint> singleton(IssueHint.count());
+        if (input instanceof List) {
+            int count = ((List<?>) input).count(hints);
+            return new Text(Integer.toString(count));
+        }
         int count = 0;
-        Iterator<Data> it = input.toIterator(Collections.<Hint> singleton(IssueHint.count()));
+        Iterator<Data> it = input.toIterator(hints);
         while (it.hasNext()) {
             it.next();
             ++count;
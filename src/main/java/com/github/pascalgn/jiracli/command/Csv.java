@@ -36,7 +36,6 @@ import com.github.pascalgn.jiracli.model.IssueHint;
 import com.github.pascalgn.jiracli.model.IssueList;
 import com.github.pascalgn.jiracli.model.ListVisitor;
 import com.github.pascalgn.jiracli.model.ProjectList;
-import com.github.pascalgn.jiracli.model.Schema;
 import com.github.pascalgn.jiracli.model.Sprint;
 import com.github.pascalgn.jiracli.model.SprintList;
 import com.github.pascalgn.jiracli.model.Text;
@@ -130,15 +129,18 @@ class Csv implements Command {
     }
 
     private TextList toCsv(Context context, IssueList issueList) {
-        final Schema schema = context.getWebService().getSchema();
+        FormatHelper formatHelper = new FormatHelper(context.getWebService().getSchema());
+        final List<FormatHelper.Property> properties = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            properties.add(formatHelper.getProperty(field));
+        }
         Set<Hint> hints = IssueHint.fields(fields);
         return new TextList(CONTENT_TYPE, issueList.convertingSupplier(hints, new Function<Issue, Text>() {
             @Override
             public Text apply(Issue issue, Set<Hint> hints) {
-                List<String> values = new ArrayList<>(fields.size());
-                for (String field : fields) {
-                    String value = new FormatHelper(schema).getValue(issue, field);
-                    values.add(value);
+                List<String> values = new ArrayList<>(properties.size());
+                for (FormatHelper.Property property : properties) {
+                    values.add(property.getValue(issue));
                 }
                 return new Text(StringUtils.join(values, separator));
             }
@@ -20,8 +20,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URI;
-import java.util.List;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import com.github.pascalgn.jiracli.command.Argument.Parameters;
 import com.github.pascalgn.jiracli.context.Console;
 import com.github.pascalgn.jiracli.context.Context;
+import com.github.pascalgn.jiracli.context.WebService;
 import com.github.pascalgn.jiracli.model.Attachment;
 import com.github.pascalgn.jiracli.model.AttachmentList;
 import com.github.pascalgn.jiracli.model.Data;
@@ -36,15 +41,34 @@ import com.github.pascalgn.jiracli.model.None;
 import com.github.pascalgn.jiracli.util.Consumer;
 import com.github.pascalgn.jiracli.util.Hint;
 import com.github.pascalgn.jiracli.util.IOUtils;
+import com.github.pascalgn.jiracli.util.OrderedExecutor;
 
 @CommandDescription(names = { "download", "dl" }, description = "Download the given attachments")
 class Download implements Command {
     private static final Logger LOGGER = LoggerFactory.getLogger(Download.class);
 
+    /**
+     * Incomplete downloads are stored with this suffix, so they can be resumed later
+     */
+    private static final String PART_SUFFIX = ".part";
+
+    @Argument(names = { "-J", "--jobs" }, parameters = Parameters.ONE, variable = "<count>",
+            description = "number of files to download concurrently")
+    private int jobs = 1;
+
     @Argument(parameters = Parameters.ONE, variable = "<dir>",
             description = "the local directory where the attachments will be stored")
     private String path;
 
+    public Download() {
+        // default constructor
+    }
+
+    Download(String path, int jobs) {
+        this.path = path;
+        this.jobs = jobs;
+    }
+
     @Override
     public Data execute(final Context context, Data input) {
         File directory = new File(path);
@@ -56,39 +80,137 @@ class Download implements Command {
         }
 
         AttachmentList attachmentList = input.toAttachmentListOrFail();
-        List<Attachment> attachments = attachmentList.remaining(Hint.none());
-
-        final Console console = context.getConsole();
-
-        for (Attachment attachment : attachments) {
-            final File file = new File(directory, attachment.getFilename());
-            boolean createNewFile;
-            try {
-                createNewFile = file.createNewFile();
-            } catch (IOException e) {
-                LOGGER.info("Error creating file: {}", file, e);
-                console.println("Could not create file: " + file);
-                continue;
-            }
-            if (createNewFile) {
-                final URI uri = attachment.getContent();
-                console.println("Downloading " + file.getName());
-                context.getWebService().download(uri, new Consumer<InputStream>() {
-                    @Override
-                    public void accept(InputStream input) {
-                        try (OutputStream output = new FileOutputStream(file)) {
-                            IOUtils.copy(input, output);
-                        } catch (IOException e) {
-                            LOGGER.info("Error downloading URL: {}", uri, e);
-                            console.println("Could not download file!");
-                        }
+
+        Console console = context.getConsole();
+
+        OrderedExecutor<File, Long> executor = (jobs <= 1 ? null
+                : new OrderedExecutor<File, Long>("Download", jobs, jobs));
+
+        long start = System.nanoTime();
+        long bytes = 0;
+        int files = 0;
+
+        try {
+            Set<String> filenames = new HashSet<>();
+            Attachment attachment;
+            while ((attachment = attachmentList.next(Hint.none())) != null) {
+                File file = new File(directory, attachment.getFilename());
+                if (file.exists() || !filenames.add(file.getName())) {
+                    console.println("File exists: " + file.getName());
+                    continue;
+                }
+                if (executor == null) {
+                    // without --jobs, errors are not reported but thrown, like with any other command
+                    File part = getPart(file);
+                    long offset = getOffset(console, attachment, file, part);
+                    try {
+                        bytes += download(context.getWebService(), attachment, part, file, offset);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not download " + file.getName(), e);
                     }
-                });
-            } else {
-                console.println("File exists: " + file.getName());
+                    files++;
+                    continue;
+                }
+                if (executor.isFull()) {
+                    long transferred = complete(console, executor.take());
+                    if (transferred >= 0) {
+                        bytes += transferred;
+                        files++;
+                    }
+                }
+                submit(executor, context.getWebService(), console, attachment, file);
+            }
+            while (executor != null && !executor.isEmpty()) {
+                long transferred = complete(console, executor.take());
+                if (transferred >= 0) {
+                    bytes += transferred;
+                    files++;
+                }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+
+        if (files > 0) {
+            console.println(getSummary(files, bytes, System.nanoTime() - start));
         }
 
         return None.getInstance();
     }
+
+    private static void submit(OrderedExecutor<File, Long> executor, final WebService webService, Console console,
+            final Attachment attachment, final File file) {
+        final File part = getPart(file);
+        final long offset = getOffset(console, attachment, file, part);
+        executor.submit(file, new Callable<Long>() {
+            @Override
+            public Long call() throws IOException {
+                return download(webService, attachment, part, file, offset);
+            }
+        });
+    }
+
+    private static File getPart(File file) {
+        return new File(file.getParentFile(), file.getName() + PART_SUFFIX);
+    }
+
+    /**
+     * @return The length of the part file, if the download can be resumed from there, otherwise <code>0</code>
+     */
+    private static long getOffset(Console console, Attachment attachment, File file, File part) {
+        long length = part.length();
+        long offset = (length > 0 && length < attachment.getSize() ? length : 0);
+        console.println((offset > 0 ? "Resuming " : "Downloading ") + file.getName());
+        return offset;
+    }
+
+    /**
+     * @return The number of downloaded bytes or <code>-1</code> if the download failed
+     */
+    private static long complete(Console console, OrderedExecutor.Result<File, Long> result) {
+        Exception error = result.getError();
+        if (error == null) {
+            return result.get();
+        }
+        LOGGER.info("Error downloading file: {}", result.getItem(), error);
+        console.println("Could not download " + result.getItem().getName() + ": " + error.getMessage());
+        return -1;
+    }
+
+    /**
+     * @return The number of downloaded bytes
+     */
+    private static long download(WebService webService, Attachment attachment, final File part, File file,
+            final long offset) throws IOException {
+        webService.download(attachment.getContent(), offset, new Consumer<InputStream>() {
+            @Override
+            public void accept(InputStream input) {
+                // when resuming, the part file has exactly the length of the offset
+                try (OutputStream output = new FileOutputStream(part, offset > 0)) {
+                    IOUtils.copy(input, output);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not write file: " + part, e);
+                }
+            }
+        });
+        long size = part.length();
+        long expected = attachment.getSize();
+        if (expected >= 0 && size != expected) {
+            if (size > expected && !part.delete()) {
+                LOGGER.debug("Could not delete file: {}", part);
+            }
+            throw new IllegalStateException("Invalid size: " + size + " bytes, expected " + expected + " bytes");
+        }
+        Files.move(part.toPath(), file.toPath());
+        return size - offset;
+    }
+
+    static String getSummary(int files, long bytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        double megabytes = bytes / (1024.0 * 1024.0);
+        return String.format(Locale.ROOT, "Downloaded %d file%s (%.1f MB) in %.1f s, %.1f MB/s", files,
+                (files == 1 ? "" : "s"), megabytes, seconds, megabytes / seconds);
+    }
 }
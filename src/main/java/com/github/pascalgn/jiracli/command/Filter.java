@@ -16,11 +16,18 @@
 package com.github.pascalgn.jiracli.command;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.github.pascalgn.jiracli.command.Argument.Parameters;
 import com.github.pascalgn.jiracli.context.Context;
+import com.github.pascalgn.jiracli.context.JavaScriptEngine;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.Issue;
 import com.github.pascalgn.jiracli.model.IssueHint;
@@ -28,11 +35,20 @@ import com.github.pascalgn.jiracli.model.IssueList;
 import com.github.pascalgn.jiracli.model.Schema;
 import com.github.pascalgn.jiracli.model.Text;
 import com.github.pascalgn.jiracli.model.TextList;
+import com.github.pascalgn.jiracli.parser.FilterExpression;
 import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.OrderedExecutor;
 import com.github.pascalgn.jiracli.util.Supplier;
 
 @CommandDescription(names = { "filter", "grep" }, description = "Filter issues by the given field value")
 class Filter implements Command {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Filter.class);
+
+    /**
+     * Number of items read ahead per job when filtering concurrently
+     */
+    private static final int WINDOW_FACTOR = 4;
+
     @Argument(names = { "-e", "-E", "--regexp" }, description = "use regular expressions")
     private boolean regexp;
 
@@ -42,9 +58,16 @@ class Filter implements Command {
     @Argument(names = { "-j", "--javascript" }, description = "interpret value as a JavaScript expression")
     private boolean javaScript;
 
+    @Argument(names = { "-x", "--expression" }, description = "interpret value as a filter expression")
+    private boolean expression;
+
     @Argument(names = { "-v", "--inverse" }, description = "only return items that don't match")
     private boolean inverse;
 
+    @Argument(names = { "-J", "--jobs" }, parameters = Parameters.ONE, variable = "<count>",
+            description = "number of JavaScript expressions to evaluate concurrently")
+    private int jobs = 1;
+
     @Argument(names = { "-f", "--field" }, parameters = Parameters.ONE, variable = "<field>",
             description = "issue's field name")
     private String field;
@@ -68,10 +91,27 @@ class Filter implements Command {
         this.search = search;
     }
 
+    Filter(boolean expression, String search) {
+        this.expression = expression;
+        this.search = search;
+    }
+
+    Filter(String search, int jobs) {
+        this.javaScript = true;
+        this.search = search;
+        this.jobs = jobs;
+    }
+
     @Override
     public Data execute(final Context context, final Data input) {
-        if (javaScript) {
+        if (javaScript && expression) {
+            throw new IllegalArgumentException("Cannot combine --javascript and --expression!");
+        } else if (javaScript) {
             return filterJavaScript(context, input);
+        } else if (expression) {
+            return filterExpression(context, input);
+        } else if (jobs != 1) {
+            throw new IllegalArgumentException("Option --jobs can only be used with --javascript!");
         } else {
             return filterValue(context, input);
         }
@@ -91,6 +131,19 @@ class Filter implements Command {
         final IssueList issueList = input.toIssueList();
         if (issueList == null) {
             final TextList textList = input.toTextListOrFail();
+            if (jobs > 1) {
+                return new TextList(new ConcurrentSupplier<Text>(context) {
+                    @Override
+                    protected Text next(Set<Hint> hints) {
+                        return textList.next(hints);
+                    }
+
+                    @Override
+                    protected boolean test(JavaScriptEngine engine, Text text) {
+                        return engine.test(js, text);
+                    }
+                });
+            }
             return new TextList(new Supplier<Text>() {
                 @Override
                 public Text get(Set<Hint> hints) {
@@ -107,6 +160,19 @@ class Filter implements Command {
         } else {
             List<String> fields = CommandUtils.findJavaScriptFields(js);
             final Set<Hint> hints = IssueHint.fields(fields);
+            if (jobs > 1) {
+                return new IssueList(new ConcurrentSupplier<Issue>(context) {
+                    @Override
+                    protected Issue next(Set<Hint> localHints) {
+                        return issueList.next(Hint.combine(hints, localHints));
+                    }
+
+                    @Override
+                    protected boolean test(JavaScriptEngine engine, Issue issue) {
+                        return engine.test(js, issue);
+                    }
+                });
+            }
             return new IssueList(new Supplier<Issue>() {
                 @Override
                 public Issue get(Set<Hint> localHints) {
@@ -124,6 +190,38 @@ class Filter implements Command {
         }
     }
 
+    private Data filterExpression(final Context context, final Data input) {
+        if (regexp) {
+            throw new IllegalArgumentException("Cannot combine --expression and --regexp!");
+        } else if (ignoreCase) {
+            throw new IllegalArgumentException("Cannot combine --expression and --ignore-case!");
+        } else if (field != null) {
+            throw new IllegalArgumentException("Cannot combine --expression and --field!");
+        } else if (jobs != 1) {
+            throw new IllegalArgumentException("Option --jobs can only be used with --javascript!");
+        }
+
+        Schema schema = context.getWebService().getSchema();
+        final FilterExpression filterExpression = FilterExpression.compile(search, schema);
+
+        final IssueList issueList = input.toIssueListOrFail();
+        final Set<Hint> hints = IssueHint.fields(filterExpression.getFields());
+        return new IssueList(new Supplier<Issue>() {
+            @Override
+            public Issue get(Set<Hint> localHints) {
+                Set<Hint> combined = Hint.combine(hints, localHints);
+                Issue issue;
+                while ((issue = issueList.next(combined)) != null) {
+                    boolean result = filterExpression.test(issue);
+                    if (result ^ inverse) {
+                        return issue;
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
     private Data filterValue(final Context context, final Data input) {
         int flags = 0;
         if (!regexp) {
@@ -173,4 +271,86 @@ class Filter implements Command {
         String value = new FormatHelper(schema).getValue(issue, field);
         return pattern.matcher(value).find();
     }
+
+    /**
+     * Evaluates the expression for up to <code>jobs * WINDOW_FACTOR</code> items concurrently and returns the matching
+     * items in input order. Every evaluation checks out an engine from a pool, so no two threads share script state.
+     */
+    private abstract class ConcurrentSupplier<T> implements Supplier<T> {
+        private final Context context;
+
+        private final Queue<JavaScriptEngine> engines = new ConcurrentLinkedQueue<>();
+
+        private OrderedExecutor<T, Boolean> executor;
+        private boolean exhausted;
+
+        public ConcurrentSupplier(Context context) {
+            this.context = context;
+        }
+
+        protected abstract T next(Set<Hint> hints);
+
+        protected abstract boolean test(JavaScriptEngine engine, T item);
+
+        @Override
+        public T get(Set<Hint> hints) {
+            if (executor == null) {
+                executor = new OrderedExecutor<>("Filter", jobs, jobs * WINDOW_FACTOR);
+            }
+            try {
+                return nextMatching(hints);
+            } catch (RuntimeException | Error e) {
+                // the remaining results are not needed anymore
+                executor.shutdown();
+                throw e;
+            }
+        }
+
+        private T nextMatching(Set<Hint> hints) {
+            while (true) {
+                while (!exhausted && !executor.isFull()) {
+                    // the input is always read on the calling thread
+                    T item = next(hints);
+                    if (item == null) {
+                        exhausted = true;
+                    } else {
+                        submit(item);
+                    }
+                }
+                OrderedExecutor.Result<T, Boolean> result = executor.take();
+                if (result == null) {
+                    // nothing will be submitted anymore, the threads are not needed
+                    executor.shutdown();
+                    return null;
+                }
+                if (result.get() ^ inverse) {
+                    return result.getItem();
+                }
+            }
+        }
+
+        private void submit(final T item) {
+            executor.submit(item, new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    JavaScriptEngine engine = checkout();
+                    try {
+                        return test(engine, item);
+                    } finally {
+                        engines.add(engine);
+                    }
+                }
+            });
+        }
+
+        private JavaScriptEngine checkout() {
+            JavaScriptEngine engine = engines.poll();
+            if (engine == null) {
+                // at most one engine per thread will be created
+                engine = context.getJavaScriptEngine().newInstance();
+                LOGGER.debug("Created JavaScript engine for {}", Thread.currentThread().getName());
+            }
+            return engine;
+        }
+    }
 }
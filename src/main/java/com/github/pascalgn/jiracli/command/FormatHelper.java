@@ -15,10 +15,11 @@
  */
 package com.github.pascalgn.jiracli.command;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +30,6 @@ import com.github.pascalgn.jiracli.model.FieldMap;
 import com.github.pascalgn.jiracli.model.Issue;
 import com.github.pascalgn.jiracli.model.Schema;
 import com.github.pascalgn.jiracli.util.ReflectionUtils;
-import com.github.pascalgn.jiracli.util.StringUtils;
 
 class FormatHelper {
     private static final Logger LOGGER = LoggerFactory.getLogger(FormatHelper.class);
@@ -41,22 +41,36 @@ class FormatHelper {
     }
 
     public String format(Object object, String format) {
-        StringBuilder str = new StringBuilder();
+        return compile(format).format(object);
+    }
+
+    /**
+     * Parses the given format, so it can be applied to many objects
+     */
+    public Template compile(String format) {
+        List<Object> parts = new ArrayList<>();
         Matcher m = CommandUtils.getPropertyPattern().matcher(format);
         int end = 0;
         while (m.find()) {
-            str.append(format.substring(end, m.start()));
+            if (m.start() > end) {
+                parts.add(format.substring(end, m.start()));
+            }
             end = m.end();
             String name = (m.group(1) == null ? m.group(2) : m.group(1));
-            Object value = getValue(object, name);
-            if (value instanceof JSONArray) {
-                str.append(StringUtils.join((JSONArray) value, ", "));
-            } else {
-                str.append(value);
-            }
+            parts.add(getProperty(name));
+        }
+        if (end < format.length()) {
+            parts.add(format.substring(end));
         }
-        str.append(format.substring(end));
-        return str.toString();
+        return new Template(parts.toArray());
+    }
+
+    /**
+     * Parses the given property, like <code>summary</code> or <code>reporter.name</code>, so its value can be
+     * returned for many objects
+     */
+    public Property getProperty(String property) {
+        return new Property(property);
     }
 
     public String getValue(Object object, String property) {
@@ -68,69 +82,157 @@ class FormatHelper {
     }
 
     public String getValue(Object object, String property, String defaultValue, boolean raw) {
-        Object value = getObjectValue(object, property, defaultValue, raw);
-        return Objects.toString(value, "");
+        return getProperty(property).getValue(object, defaultValue, raw);
+    }
+
+    /**
+     * A parsed format: text, followed by property values
+     */
+    public final class Template {
+        private final Object[] parts;
+
+        private Template(Object[] parts) {
+            this.parts = parts;
+        }
+
+        public String format(Object object) {
+            StringBuilder str = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof Property) {
+                    str.append(((Property) part).getValue(object));
+                } else {
+                    str.append((String) part);
+                }
+            }
+            return str.toString();
+        }
     }
 
-    private Object getObjectValue(Object object, String property, String defaultValue, boolean raw) {
-        if (property.contains(".")) {
-            String[] properties = property.split("\\.");
+    /**
+     * A parsed property. Field IDs and converters of issue fields are only resolved once.
+     */
+    public final class Property {
+        private final String property;
+        private final String[] names;
+
+        /**
+         * The field IDs, once they have been resolved. Names which are not known to the schema remain
+         * <code>null</code>, they will be resolved for every issue.
+         */
+        private final String[] ids;
+        private final boolean[] resolved;
+        private final Converter[] converters;
+
+        private Property(String property) {
+            this.property = property;
+            this.names = property.split("\\.");
+            this.ids = new String[names.length];
+            this.resolved = new boolean[names.length];
+            this.converters = new Converter[names.length];
+        }
+
+        public String getValue(Object object) {
+            return getValue(object, "", false);
+        }
+
+        public String getValue(Object object, boolean raw) {
+            return getValue(object, "", raw);
+        }
+
+        public String getValue(Object object, String defaultValue, boolean raw) {
+            return Objects.toString(getObjectValue(object, defaultValue, raw), "");
+        }
+
+        private Object getObjectValue(Object object, String defaultValue, boolean raw) {
+            if (names.length == 1) {
+                return getObjectValue(object, 0, defaultValue, raw);
+            }
             Object obj = object;
             try {
-                for (int i = 0; i < properties.length - 1; i++) {
-                    obj = getObjectValue(obj, properties[i], defaultValue, true);
+                for (int i = 0; i < names.length - 1; i++) {
+                    obj = getObjectValue(obj, i, defaultValue, true);
                 }
-                return getObjectValue(obj, properties[properties.length - 1], defaultValue, raw);
+                return getObjectValue(obj, names.length - 1, defaultValue, raw);
             } catch (IllegalArgumentException e) {
                 throw new IllegalArgumentException("Cannot get property: " + property + ": " + object, e);
             }
-        } else {
+        }
+
+        private Object getObjectValue(Object object, int index, String defaultValue, boolean raw) {
+            String name = names[index];
             Object value;
             if (object instanceof Issue) {
                 Issue issue = (Issue) object;
-                value = getValue(issue, property, raw);
+                value = getValue(issue, index, raw);
             } else if (object instanceof JSONObject) {
                 JSONObject json = (JSONObject) object;
-                value = json.opt(property);
+                value = json.opt(name);
                 if (value == JSONObject.NULL) {
                     value = null;
                 }
             } else {
-                value = ReflectionUtils.getValue(object, property);
+                value = ReflectionUtils.getValue(object, name);
             }
             if (value == null) {
                 value = defaultValue;
                 if (value == null) {
-                    throw new IllegalArgumentException("Cannot get property: " + property + ": " + object);
+                    throw new IllegalArgumentException("Cannot get property: " + name + ": " + object);
                 }
             }
             return value;
         }
-    }
 
-    private Object getValue(Issue issue, String field, boolean raw) {
-        if (field.equals("key")) {
-            return issue.getKey();
-        }
+        private Object getValue(Issue issue, int index, boolean raw) {
+            String field = names[index];
+            if (field.equals("key")) {
+                return issue.getKey();
+            }
 
-        FieldMap fieldMap = issue.getFieldMap();
-        Field f = fieldMap.getField(field, schema);
-        if (f == null) {
-            return null;
+            FieldMap fieldMap = issue.getFieldMap();
+            String id = getId(index);
+            Field f = (id == null ? fieldMap.getField(field, schema) : fieldMap.getFieldById(id));
+            if (f == null) {
+                return null;
+            }
+
+            Object value = f.getValue().get();
+            if (raw) {
+                return value;
+            }
+
+            Object original = value;
+            try {
+                return getConverter(index, f.getId()).toString(value);
+            } catch (RuntimeException e) {
+                LOGGER.trace("Error converting field value: {}: {}", f.getId(), original, e);
+                return original;
+            }
         }
 
-        Object value = f.getValue().get();
-        if (raw) {
-            return value;
+        private String getId(int index) {
+            if (!resolved[index]) {
+                if (schema != null) {
+                    try {
+                        ids[index] = schema.getId(names[index]);
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.trace("Field will be resolved per issue: {}", names[index], e);
+                    }
+                }
+                resolved[index] = true;
+            }
+            return ids[index];
         }
 
-        Object original = value;
-        try {
-            Converter converter = schema.getConverter(f.getId());
-            return converter.toString(value);
-        } catch (RuntimeException e) {
-            LOGGER.trace("Error converting field value: {}: {}", f.getId(), original, e);
-            return original;
+        private Converter getConverter(int index, String id) {
+            if (ids[index] == null) {
+                return schema.getConverter(id);
+            }
+            Converter converter = converters[index];
+            if (converter == null) {
+                converter = schema.getConverter(id);
+                converters[index] = converter;
+            }
+            return converter;
         }
     }
 }
@@ -15,6 +15,7 @@
  */
 package com.github.pascalgn.jiracli.command;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
@@ -75,15 +76,18 @@ class Get implements Command {
             });
         } else {
             final Schema schema = context.getWebService().getSchema();
+            FormatHelper formatHelper = new FormatHelper(schema);
+            final List<FormatHelper.Property> properties = new ArrayList<>(fields.size());
+            for (String field : fields) {
+                properties.add(formatHelper.getProperty(field));
+            }
             return new TextList(issueList.convertingSupplier(IssueHint.fields(fields), new Function<Issue, Text>() {
                 @Override
                 public Text apply(Issue issue, Set<Hint> hints) {
                     StringBuilder str = new StringBuilder();
-                    boolean first = true;
-                    for (String field : fields) {
-                        if (first) {
-                            first = false;
-                        } else {
+                    for (int i = 0; i < fields.size(); i++) {
+                        String field = fields.get(i);
+                        if (i > 0) {
                             str.append("\t");
                         }
                         if (field.equals("key")) {
@@ -98,7 +102,7 @@ class Get implements Command {
                                 Object val = f.getValue().get();
                                 str.append(Objects.toString(val, ""));
                             } else {
-                                str.append(new FormatHelper(schema).getValue(issue, field));
+                                str.append(properties.get(i).getValue(issue));
                             }
                         }
                     }
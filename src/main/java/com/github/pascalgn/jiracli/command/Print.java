@@ -57,7 +57,8 @@ class Print implements Command {
         List<String> fields = CommandUtils.findPatternFields(pattern);
         Set<Hint> hints = IssueHint.fields(fields);
         IssueList issueList = input.toIssueList();
-        final Schema schema = context.getWebService().getSchema();
+        Schema schema = context.getWebService().getSchema();
+        final FormatHelper.Template template = new FormatHelper(schema).compile(pattern);
         if (issueList == null) {
             final Iterator<Data> iterator = input.toIterator(hints);
             return new TextList(new Supplier<Text>() {
@@ -67,7 +68,7 @@ class Print implements Command {
                         Data data = iterator.next();
                         String str;
                         try {
-                            str = new FormatHelper(schema).format(data, pattern);
+                            str = template.format(data);
                         } catch (RuntimeException e) {
                             str = "[Error: " + data + ": " + e.getLocalizedMessage() + "]";
                         }
@@ -83,7 +84,7 @@ class Print implements Command {
                 public Text apply(Issue issue, Set<Hint> hints) {
                     String str;
                     try {
-                        str = new FormatHelper(schema).format(issue, pattern);
+                        str = template.format(issue);
                     } catch (RuntimeException e) {
                         LOGGER.trace("Error while formatting issue: {}", issue, e);
                         str = "[Error: " + issue + ": " + e.getLocalizedMessage() + "]";
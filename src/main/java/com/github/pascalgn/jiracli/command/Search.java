@@ -15,6 +15,7 @@
  */
 package com.github.pascalgn.jiracli.command;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -25,8 +26,8 @@ import com.github.pascalgn.jiracli.context.WebService.Request;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.Issue;
 import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.util.CountingSupplier;
 import com.github.pascalgn.jiracli.util.Hint;
-import com.github.pascalgn.jiracli.util.Supplier;
 
 @CommandDescription(names = { "search", "s" }, description = "Search for issues via JQL")
 class Search implements Command {
@@ -46,7 +47,7 @@ class Search implements Command {
         return new IssueList(new IssueSupplier(context));
     }
 
-    private class IssueSupplier implements Supplier<Issue> {
+    private class IssueSupplier implements CountingSupplier<Issue> {
         private Context context;
         private Iterator<Issue> issues;
 
@@ -63,5 +64,16 @@ class Search implements Command {
             }
             return (issues.hasNext() ? issues.next() : null);
         }
+
+        @Override
+        public synchronized int count(Set<Hint> hints) {
+            if (issues == null) {
+                int count = context.getWebService().countIssues(jql);
+                issues = Collections.<Issue> emptyIterator();
+                return count;
+            } else {
+                return -1;
+            }
+        }
     }
 }
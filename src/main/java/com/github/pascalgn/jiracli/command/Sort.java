@@ -20,19 +20,24 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.pascalgn.jiracli.Constants;
 import com.github.pascalgn.jiracli.command.Argument.Parameters;
+import com.github.pascalgn.jiracli.command.FormatHelper.Property;
 import com.github.pascalgn.jiracli.context.Context;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.Issue;
@@ -52,6 +57,17 @@ class Sort implements Command {
 
     private static final String FORMAT = "$summary";
     private static final List<String> KEY = Collections.singletonList("key");
+    private static final boolean[] TEXT_COLUMNS = new boolean[1];
+
+    /**
+     * Texts are sorted in memory up to this size, can be changed with -Djiracli.sortMemory=&lt;megabytes&gt;
+     */
+    private static final long MEMORY_LIMIT = Constants.getInteger("sortMemory", 64) * 1024L * 1024L;
+
+    /**
+     * Maximum number of runs that are merged at once, more runs are first merged into larger runs
+     */
+    private static final int MAX_FAN_IN = 32;
 
     @Argument(names = { "-f", "--field" }, parameters = Parameters.ONE_OR_MORE, variable = "<field>",
             description = "issue fields to compare")
@@ -69,6 +85,9 @@ class Sort implements Command {
     @Argument(names = { "-e", "--edit" }, description = "open an editor to change the sort order")
     private boolean edit;
 
+    private long memoryLimit = MEMORY_LIMIT;
+    private int maxFanIn = MAX_FAN_IN;
+
     public Sort() {
         // default constructor
     }
@@ -80,6 +99,12 @@ class Sort implements Command {
         this.unique = unique;
     }
 
+    Sort(List<String> fields, boolean numeric, boolean reverse, boolean unique, long memoryLimit, int maxFanIn) {
+        this(fields, numeric, reverse, unique);
+        this.memoryLimit = memoryLimit;
+        this.maxFanIn = maxFanIn;
+    }
+
     @Override
     public Data execute(final Context context, Data input) {
         fields = CommandUtils.getFields(fields);
@@ -116,22 +141,32 @@ class Sort implements Command {
 
     private List<Issue> sort(final Context context, List<Issue> issues) {
         Schema schema = context.getWebService().getSchema();
+        FormatHelper formatHelper = new FormatHelper(schema);
 
-        if (fields.equals(KEY)) {
-            Collections.sort(issues, new IssueKeyComparator());
-        } else {
-            Collections.sort(issues, new IssueComparator(schema));
+        boolean[] keyColumns = new boolean[fields.size()];
+        Property[] properties = new Property[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            keyColumns[i] = fields.get(i).equals("key");
+            properties[i] = formatHelper.getProperty(fields.get(i));
         }
 
-        if (unique) {
-            Set<List<String>> set = new HashSet<>();
-            Iterator<Issue> it = issues.iterator();
-            while (it.hasNext()) {
-                Issue issue = it.next();
-                List<String> values = values(issue, schema);
-                if (!set.add(values)) {
-                    it.remove();
-                }
+        // the values of every issue are only extracted once, not for every comparison
+        List<SortKey<Issue>> sortKeys = new ArrayList<>(issues.size());
+        for (Issue issue : issues) {
+            String[] values = new String[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                values[i] = (keyColumns[i] ? issue.getKey() : properties[i].getValue(issue));
+            }
+            sortKeys.add(new SortKey<>(issue, values, keyColumns, numeric));
+        }
+
+        Collections.sort(sortKeys, new SortKeyComparator(keyColumns));
+
+        issues = new ArrayList<>(sortKeys.size());
+        Set<List<String>> set = (unique ? new HashSet<List<String>>() : null);
+        for (SortKey<Issue> sortKey : sortKeys) {
+            if (set == null || set.add(Arrays.asList(sortKey.values))) {
+                issues.add(sortKey.item);
             }
         }
 
@@ -168,110 +203,501 @@ class Sort implements Command {
         }
     }
 
-    private TextList sort(TextList textList) {
+    private TextList sort(final TextList textList) {
         if (!fields.equals(KEY) && !fields.isEmpty()) {
             LOGGER.warn("Sorting text list, fields ignored: {}", fields);
         }
 
-        List<Text> list = textList.remaining(Hint.none());
-        Collections.sort(list, new TextComparator());
+        return new TextList(textList.getType(), new Supplier<Text>() {
+            private Supplier<Text> sorted;
+
+            @Override
+            public Text get(Set<Hint> hints) {
+                if (sorted == null) {
+                    sorted = sort(textList, hints);
+                }
+                return sorted.get(hints);
+            }
+        });
+    }
+
+    /**
+     * Sorts the texts in memory, as long as they fit into the memory limit. Otherwise, sorted runs are written to
+     * temporary files and merged while the result is read. When there are too many runs to read them all at once,
+     * consecutive runs are merged into larger ones first.
+     */
+    private Supplier<Text> sort(TextList textList, Set<Hint> hints) {
+        TemporaryRuns temporaryRuns = new TemporaryRuns();
+        try {
+            return sort(textList, hints, temporaryRuns);
+        } catch (RuntimeException | Error e) {
+            temporaryRuns.run();
+            throw e;
+        }
+    }
+
+    private Supplier<Text> sort(TextList textList, Set<Hint> hints, final TemporaryRuns temporaryRuns) {
+        SortKeyComparator comparator = new SortKeyComparator(TEXT_COLUMNS);
+
+        List<SortKey<Text>> buffer = new ArrayList<>();
+        long size = 0;
+
+        List<File> files = new ArrayList<>();
+        Text text;
+        while ((text = textList.next(hints)) != null) {
+            buffer.add(toSortKey(text));
+            size += estimateSize(text);
+            if (size > memoryLimit) {
+                Collections.sort(buffer, comparator);
+                files.add(temporaryRuns.writeRun(new ListRun(buffer)));
+                buffer.clear();
+                size = 0;
+            }
+        }
+
+        Collections.sort(buffer, comparator);
 
-        if (unique) {
-            return new TextList(textList.getType(), new LinkedHashSet<>(list).iterator());
+        if (files.isEmpty()) {
+            List<Text> list = new ArrayList<>(buffer.size());
+            for (SortKey<Text> sortKey : buffer) {
+                list.add(sortKey.item);
+            }
+            Collection<Text> result = (unique ? new LinkedHashSet<>(list) : list);
+            final Iterator<Text> iterator = result.iterator();
+            return new Supplier<Text>() {
+                @Override
+                public Text get(Set<Hint> hints) {
+                    return (iterator.hasNext() ? iterator.next() : null);
+                }
+            };
         } else {
-            return new TextList(textList.getType(), list.iterator());
+            int fanIn = Math.max(2, maxFanIn);
+            // the runs in memory are merged last, so one file less can be read at the same time
+            while (files.size() > fanIn - 1) {
+                LOGGER.debug("Merging {} sorted runs into larger runs", files.size());
+                List<File> merged = new ArrayList<>();
+                for (int i = 0; i < files.size(); i += fanIn) {
+                    List<File> group = files.subList(i, Math.min(files.size(), i + fanIn));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                    } else {
+                        List<Run> runs = new ArrayList<>();
+                        for (File file : group) {
+                            runs.add(temporaryRuns.openRun(file));
+                        }
+                        // duplicates are only removed by the final merge
+                        merged.add(temporaryRuns.writeRun(new MergingRun(runs, comparator, false)));
+                    }
+                }
+                files = merged;
+            }
+            LOGGER.debug("Merging {} sorted runs", files.size() + 1);
+            List<Run> runs = new ArrayList<>();
+            for (File file : files) {
+                runs.add(temporaryRuns.openRun(file));
+            }
+            runs.add(new ListRun(buffer));
+            final Run run = new MergingRun(runs, comparator, unique);
+            return new Supplier<Text>() {
+                @Override
+                public Text get(Set<Hint> hints) {
+                    SortKey<Text> sortKey;
+                    try {
+                        sortKey = run.next();
+                    } catch (RuntimeException | Error e) {
+                        temporaryRuns.run();
+                        throw e;
+                    }
+                    if (sortKey == null) {
+                        temporaryRuns.run();
+                        return null;
+                    }
+                    return sortKey.item;
+                }
+            };
         }
     }
 
-    private static class IssueKeyComparator implements Comparator<Issue> {
-        @Override
-        public int compare(Issue issue1, Issue issue2) {
-            return compareKeys(issue1.getKey(), issue2.getKey());
+    private SortKey<Text> toSortKey(Text text) {
+        return new SortKey<>(text, new String[] { text.getText() }, TEXT_COLUMNS, numeric);
+    }
+
+    private static long estimateSize(Text text) {
+        // the text and its sort key, including object headers and references
+        return 96 + 2L * text.getText().length();
+    }
+
+    /**
+     * Escapes tabs and line breaks, so that every text can be written as a single line, after its type
+     */
+    private static String escape(String str) {
+        if (str.indexOf('\\') == -1 && str.indexOf('\t') == -1 && str.indexOf('\n') == -1
+                && str.indexOf('\r') == -1) {
+            return str;
+        }
+        StringBuilder s = new StringBuilder(str.length() + 16);
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\\') {
+                s.append("\\\\");
+            } else if (c == '\t') {
+                s.append("\\t");
+            } else if (c == '\n') {
+                s.append("\\n");
+            } else if (c == '\r') {
+                s.append("\\r");
+            } else {
+                s.append(c);
+            }
         }
+        return s.toString();
     }
 
-    static int compareKeys(String key1, String key2) {
-        Matcher matcher1 = CommandUtils.getKeyPattern().matcher(key1);
-        Matcher matcher2 = CommandUtils.getKeyPattern().matcher(key2);
-        if (matcher1.matches() && matcher2.matches()) {
-            int strCompare = matcher1.group(1).compareTo(matcher2.group(1));
-            if (strCompare == 0) {
-                int id1 = Integer.parseInt(matcher1.group(2));
-                int id2 = Integer.parseInt(matcher2.group(2));
-                return Integer.compare(id1, id2);
+    private static String unescape(String str) {
+        if (str.indexOf('\\') == -1) {
+            return str;
+        }
+        StringBuilder s = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\\' && i + 1 < str.length()) {
+                char next = str.charAt(++i);
+                s.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
             } else {
-                return strCompare;
+                s.append(c);
             }
-        } else {
-            return key1.compareTo(key2);
         }
+        return s.toString();
+    }
+
+    /**
+     * A sorted sequence of texts
+     */
+    private interface Run {
+        /**
+         * @return The next sort key or <code>null</code> if the run is exhausted
+         */
+        SortKey<Text> next();
     }
 
-    private class IssueComparator implements Comparator<Issue> {
-        private final Schema schema;
+    private static class ListRun implements Run {
+        private final Iterator<SortKey<Text>> iterator;
 
-        public IssueComparator(Schema schema) {
-            this.schema = schema;
+        public ListRun(List<SortKey<Text>> sortKeys) {
+            this.iterator = sortKeys.iterator();
         }
 
         @Override
-        public int compare(Issue issue1, Issue issue2) {
-            List<String> values1 = values(issue1, schema);
-            List<String> values2 = values(issue2, schema);
-            for (int i = 0; i < fields.size(); i++) {
-                String value1 = values1.get(i);
-                String value2 = values2.get(i);
-                int compare;
-                if (fields.get(i).equals("key")) {
-                    compare = compareKeys(value1, value2);
-                } else {
-                    compare = Sort.this.compare(value1, value2);
+        public SortKey<Text> next() {
+            return (iterator.hasNext() ? iterator.next() : null);
+        }
+    }
+
+    /**
+     * The temporary files of a sort. When the result has been read completely or the sort fails, the files which
+     * are still being read are closed and all files are removed. Files of a result which is only read partially are
+     * removed when the application exits.
+     */
+    private class TemporaryRuns implements Runnable {
+        private final List<File> files = new ArrayList<>();
+        private final List<FileRun> open = new ArrayList<>();
+
+        /**
+         * Writes the texts of the given run to a new temporary file, every line contains the type and the text
+         */
+        public File writeRun(Run run) {
+            File file = IOUtils.createTemporaryFile("sort", ".txt");
+            file.deleteOnExit();
+            synchronized (this) {
+                files.add(file);
+            }
+            try (BufferedWriter writer = IOUtils.createBufferedWriter(file)) {
+                SortKey<Text> sortKey;
+                while ((sortKey = run.next()) != null) {
+                    writer.write(escape(sortKey.item.getType()));
+                    writer.write('\t');
+                    writer.write(escape(sortKey.item.getText()));
+                    writer.write('\n');
                 }
-                if (compare != 0) {
-                    return compare;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not write temporary file: " + file, e);
+            }
+            return file;
+        }
+
+        public synchronized FileRun openRun(File file) {
+            FileRun run = new FileRun(this, file);
+            open.add(run);
+            return run;
+        }
+
+        private synchronized void closed(FileRun run) {
+            open.remove(run);
+        }
+
+        @Override
+        public void run() {
+            List<FileRun> runs;
+            List<File> remaining;
+            synchronized (this) {
+                runs = new ArrayList<>(open);
+                open.clear();
+                remaining = new ArrayList<>(files);
+                files.clear();
+            }
+            for (FileRun run : runs) {
+                run.close();
+            }
+            for (File file : remaining) {
+                IOUtils.deleteTemporaryFile(file);
+            }
+        }
+    }
+
+    private class FileRun implements Run {
+        private final TemporaryRuns temporaryRuns;
+        private final File file;
+        private BufferedReader reader;
+        private boolean closed;
+
+        public FileRun(TemporaryRuns temporaryRuns, File file) {
+            this.temporaryRuns = temporaryRuns;
+            this.file = file;
+        }
+
+        @Override
+        public SortKey<Text> next() {
+            String line = readLine();
+            if (line == null) {
+                temporaryRuns.closed(this);
+                IOUtils.deleteTemporaryFile(file);
+                return null;
+            }
+            int tab = line.indexOf('\t');
+            return toSortKey(new Text(unescape(line.substring(0, tab)), unescape(line.substring(tab + 1))));
+        }
+
+        /**
+         * @return The next line or <code>null</code> if the file is exhausted, it will be closed in that case
+         */
+        private synchronized String readLine() {
+            if (closed) {
+                return null;
+            }
+            try {
+                if (reader == null) {
+                    reader = IOUtils.createBufferedReader(file);
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    close();
                 }
+                return line;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read temporary file: " + file, e);
+            }
+        }
+
+        public synchronized void close() {
+            closed = true;
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Could not close temporary file: {}", file, e);
+                }
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * Lazily merges the sorted runs. Equal items are returned in the order of the runs, like a stable sort would.
+     */
+    private static class MergingRun implements Run {
+        private final List<Run> runs;
+        private final SortKeyComparator comparator;
+        private final boolean unique;
+        private final PriorityQueue<Head> queue;
+
+        /**
+         * The texts which are equal to the last returned item, used to remove duplicates
+         */
+        private final Set<String> returned = new HashSet<>();
+        private SortKey<Text> last;
+
+        public MergingRun(List<Run> runs, final SortKeyComparator comparator, boolean unique) {
+            this.runs = runs;
+            this.comparator = comparator;
+            this.unique = unique;
+            this.queue = new PriorityQueue<>(runs.size(), new Comparator<Head>() {
+                @Override
+                public int compare(Head h1, Head h2) {
+                    int compare = comparator.compare(h1.sortKey, h2.sortKey);
+                    return (compare == 0 ? Integer.compare(h1.run, h2.run) : compare);
+                }
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                SortKey<Text> sortKey = runs.get(i).next();
+                if (sortKey != null) {
+                    queue.add(new Head(sortKey, i));
+                }
+            }
+        }
+
+        @Override
+        public SortKey<Text> next() {
+            while (true) {
+                Head head = queue.poll();
+                if (head == null) {
+                    return null;
+                }
+                SortKey<Text> sortKey = head.sortKey;
+                SortKey<Text> next = runs.get(head.run).next();
+                if (next != null) {
+                    queue.add(new Head(next, head.run));
+                }
+                if (unique) {
+                    if (last == null || comparator.compare(last, sortKey) != 0) {
+                        returned.clear();
+                    }
+                    last = sortKey;
+                    if (!returned.add(sortKey.item.getText())) {
+                        continue;
+                    }
+                }
+                return sortKey;
             }
-            return 0;
         }
     }
 
-    private List<String> values(Issue issue, Schema schema) {
-        List<String> values = new ArrayList<>();
-        for (String field : fields) {
-            String value = new FormatHelper(schema).getValue(issue, field);
-            values.add(value);
+    private static class Head {
+        private final SortKey<Text> sortKey;
+        private final int run;
+
+        public Head(SortKey<Text> sortKey, int run) {
+            this.sortKey = sortKey;
+            this.run = run;
         }
-        return values;
     }
 
-    private class TextComparator implements Comparator<Text> {
+    static int compareKeys(String key1, String key2) {
+        return IssueKey.parse(key1).compareTo(IssueKey.parse(key2));
+    }
+
+    /**
+     * An issue key, split into project and number, so they don't need to be parsed for every comparison
+     */
+    private static final class IssueKey implements Comparable<IssueKey> {
+        private final String key;
+        private final String project;
+        private final int number;
+
+        public static IssueKey parse(String key) {
+            Matcher matcher = CommandUtils.getKeyPattern().matcher(key);
+            if (matcher.matches()) {
+                return new IssueKey(key, matcher.group(1), Integer.parseInt(matcher.group(2)));
+            } else {
+                return new IssueKey(key, null, 0);
+            }
+        }
+
+        private IssueKey(String key, String project, int number) {
+            this.key = key;
+            this.project = project;
+            this.number = number;
+        }
+
         @Override
-        public int compare(Text t1, Text t2) {
-            String s1 = t1.getText();
-            String s2 = t2.getText();
-            return Sort.this.compare(s1, s2);
+        public int compareTo(IssueKey other) {
+            if (project != null && other.project != null) {
+                int strCompare = project.compareTo(other.project);
+                if (strCompare == 0) {
+                    return Integer.compare(number, other.number);
+                } else {
+                    return strCompare;
+                }
+            } else {
+                return key.compareTo(other.key);
+            }
         }
     }
 
-    private int compare(String s1, String s2) {
-        if (s1.equals(s2)) {
+    /**
+     * The values of an item, with issue keys and numbers already parsed
+     */
+    private static final class SortKey<T> {
+        private final T item;
+        private final String[] values;
+        private final IssueKey[] keys;
+        private final double[] numbers;
+        private final boolean[] isNumber;
+
+        public SortKey(T item, String[] values, boolean[] keyColumns, boolean numeric) {
+            this.item = item;
+            this.values = values;
+            this.keys = new IssueKey[values.length];
+            this.numbers = (numeric ? new double[values.length] : null);
+            this.isNumber = (numeric ? new boolean[values.length] : null);
+            for (int i = 0; i < values.length; i++) {
+                if (keyColumns[i]) {
+                    keys[i] = IssueKey.parse(values[i]);
+                } else if (numeric) {
+                    Double d = toDouble(values[i]);
+                    if (d != null) {
+                        numbers[i] = d;
+                        isNumber[i] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private class SortKeyComparator implements Comparator<SortKey<?>> {
+        private final boolean[] keyColumns;
+        private final int scale = (reverse ? -1 : 1);
+
+        public SortKeyComparator(boolean[] keyColumns) {
+            this.keyColumns = keyColumns;
+        }
+
+        @Override
+        public int compare(SortKey<?> k1, SortKey<?> k2) {
+            for (int i = 0; i < keyColumns.length; i++) {
+                int compare;
+                if (keyColumns[i]) {
+                    compare = k1.keys[i].compareTo(k2.keys[i]);
+                } else {
+                    compare = compareValues(k1, k2, i);
+                }
+                if (compare != 0) {
+                    return compare;
+                }
+            }
             return 0;
         }
-        int scale = (reverse ? -1 : 1);
-        if (numeric) {
-            Double d1 = toDouble(s1);
-            Double d2 = toDouble(s2);
-            if (d1 == null && d2 == null) {
-                return s1.compareTo(s2);
-            } else if (d1 == null) {
-                return 1 * scale;
-            } else if (d2 == null) {
-                return -1 * scale;
+
+        private int compareValues(SortKey<?> k1, SortKey<?> k2, int i) {
+            String s1 = k1.values[i];
+            String s2 = k2.values[i];
+            if (s1.equals(s2)) {
+                return 0;
+            }
+            if (numeric) {
+                boolean n1 = k1.isNumber[i];
+                boolean n2 = k2.isNumber[i];
+                if (!n1 && !n2) {
+                    return s1.compareTo(s2);
+                } else if (!n1) {
+                    return 1 * scale;
+                } else if (!n2) {
+                    return -1 * scale;
+                } else {
+                    return Double.compare(k1.numbers[i], k2.numbers[i]) * scale;
+                }
             } else {
-                return Double.compare(d1, d2) * scale;
+                return s1.compareTo(s2) * scale;
             }
-        } else {
-            return s1.compareTo(s2) * scale;
         }
     }
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pascalgn.jiracli.model.Status;
+import com.github.pascalgn.jiracli.model.Transition;
+import com.github.pascalgn.jiracli.model.Workflow;
+
+/**
+ * Finds the shortest sequence of transitions from one status to another. Every workflow is converted to a graph of
+ * statuses only once and the paths are remembered, so issues with the same workflow and status share the result.
+ */
+class TransitionPlanner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransitionPlanner.class);
+
+    private final Map<Workflow, Graph> graphs;
+
+    public TransitionPlanner() {
+        this.graphs = new HashMap<>();
+    }
+
+    /**
+     * @return The transitions leading from the source to the target status, empty if both are the same
+     * @throws IllegalArgumentException If the target status cannot be reached
+     */
+    public synchronized List<Transition> getTransitions(Workflow workflow, Status source, Status target) {
+        if (source.equals(target)) {
+            return Collections.emptyList();
+        }
+
+        Graph graph = graphs.get(workflow);
+        if (graph == null) {
+            graph = new Graph(workflow);
+            graphs.put(workflow, graph);
+        }
+
+        Map<Status, List<Transition>> paths = graph.paths.get(source);
+        if (paths == null) {
+            paths = new HashMap<>();
+            graph.paths.put(source, paths);
+        }
+
+        List<Transition> path;
+        if (paths.containsKey(target)) {
+            path = paths.get(target);
+        } else {
+            path = graph.findPath(source, target);
+            LOGGER.trace("Transitions from {} to {}: {}", source, target, path);
+            paths.put(target, path);
+        }
+
+        if (path == null) {
+            throw new IllegalArgumentException(
+                    "Cannot transition from '" + source.getName() + "' to '" + target.getName() + "'");
+        }
+        return path;
+    }
+
+    private static class Graph {
+        private final Map<Status, List<Transition>> outgoing;
+        private final List<Transition> global;
+
+        private final Map<Status, Map<Status, List<Transition>>> paths;
+
+        public Graph(Workflow workflow) {
+            this.outgoing = new HashMap<>();
+            this.global = new ArrayList<>();
+            this.paths = new HashMap<>();
+            for (Transition transition : workflow.getTransitions()) {
+                if (transition.getTarget().getStatus() == null) {
+                    continue;
+                }
+                if (transition.isGlobal()) {
+                    global.add(transition);
+                } else {
+                    Status source = transition.getSource().getStatus();
+                    if (source != null) {
+                        List<Transition> transitions = outgoing.get(source);
+                        if (transitions == null) {
+                            transitions = new ArrayList<>();
+                            outgoing.put(source, transitions);
+                        }
+                        transitions.add(transition);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Breadth-first search, transitions from the current status are preferred over global transitions
+         *
+         * @return The shortest path or <code>null</code> if there is none
+         */
+        public List<Transition> findPath(Status source, Status target) {
+            Map<Status, Transition> reachedBy = new HashMap<>();
+            Map<Status, Status> reachedFrom = new HashMap<>();
+            reachedFrom.put(source, null);
+
+            Queue<Status> queue = new ArrayDeque<>();
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                Status status = queue.poll();
+                List<Transition> transitions = new ArrayList<>();
+                if (outgoing.containsKey(status)) {
+                    transitions.addAll(outgoing.get(status));
+                }
+                transitions.addAll(global);
+                for (Transition transition : transitions) {
+                    Status next = transition.getTarget().getStatus();
+                    if (reachedFrom.containsKey(next)) {
+                        continue;
+                    }
+                    reachedBy.put(next, transition);
+                    reachedFrom.put(next, status);
+                    if (next.equals(target)) {
+                        LinkedList<Transition> path = new LinkedList<>();
+                        for (Status s = target; !s.equals(source); s = reachedFrom.get(s)) {
+                            path.addFirst(reachedBy.get(s));
+                        }
+                        return Collections.unmodifiableList(new ArrayList<>(path));
+                    }
+                    queue.add(next);
+                }
+            }
+            return null;
+        }
+    }
+}
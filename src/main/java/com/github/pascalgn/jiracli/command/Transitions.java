@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,8 +29,12 @@ import com.github.pascalgn.jiracli.command.Argument.Parameters;
 import com.github.pascalgn.jiracli.context.Context;
 import com.github.pascalgn.jiracli.context.DefaultRequest;
 import com.github.pascalgn.jiracli.model.Data;
+import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.model.FieldMap;
 import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueHint;
 import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.model.Schema;
 import com.github.pascalgn.jiracli.model.Status;
 import com.github.pascalgn.jiracli.model.Text;
 import com.github.pascalgn.jiracli.model.TextList;
@@ -37,6 +42,8 @@ import com.github.pascalgn.jiracli.model.Transition;
 import com.github.pascalgn.jiracli.model.Workflow;
 import com.github.pascalgn.jiracli.util.Function;
 import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.OrderedExecutor;
+import com.github.pascalgn.jiracli.util.Supplier;
 
 @CommandDescription(names = "transition", description = "Change the status of the given issues")
 class Transitions implements Command {
@@ -45,9 +52,26 @@ class Transitions implements Command {
     @Argument(names = { "-n", "--dry" }, description = "only print the transition order")
     private boolean dry;
 
+    @Argument(names = { "-J", "--jobs" }, parameters = Parameters.ONE, variable = "<count>",
+            description = "number of issues to transition concurrently")
+    private int jobs = 1;
+
     @Argument(parameters = Parameters.ZERO_OR_ONE, variable = "<status>", description = "The target status")
     private String status;
 
+    private final TransitionPlanner planner = new TransitionPlanner();
+
+    private Status target;
+
+    public Transitions() {
+        // default constructor
+    }
+
+    Transitions(String status, int jobs) {
+        this.status = status;
+        this.jobs = jobs;
+    }
+
     @Override
     public Data execute(final Context context, Data input) {
         IssueList issueList = input.toIssueListOrFail();
@@ -67,12 +91,7 @@ class Transitions implements Command {
                     }
                 }));
             } else {
-                return new IssueList(issueList.convertingSupplier(new Function<Issue, Issue>() {
-                    @Override
-                    public Issue apply(Issue issue, Set<Hint> hints) {
-                        return doTransition(context, issue);
-                    }
-                }));
+                return new IssueList(new TransitionSupplier(context, issueList));
             }
         }
     }
@@ -115,163 +134,155 @@ class Transitions implements Command {
         return new Text(str.toString());
     }
 
-    private Issue doTransition(Context context, Issue issue) {
+    private Issue doTransition(final Context context, Issue issue, Set<Hint> hints) {
         List<Transition> transitions = getTransitions(context, issue);
         for (Transition transition : transitions) {
             context.getWebService().transitionIssue(issue, transition);
         }
-        return context.getWebService().getIssue(issue.getKey(), new DefaultRequest());
+        final String key = issue.getKey();
+        if (transitions.isEmpty()) {
+            return issue;
+        } else if (hints.contains(IssueHint.allFields()) || hints.contains(IssueHint.editableFields())
+                || !IssueHint.getFields(hints).isEmpty()) {
+            return context.getWebService().getIssue(key, CommandUtils.getRequest(hints));
+        } else {
+            // nothing has been requested by the following commands, only fetch the issue when needed
+            return new Issue(key, new ReloadingFieldMap(new Supplier<FieldMap>() {
+                @Override
+                public FieldMap get(Set<Hint> hints) {
+                    return context.getWebService().getIssue(key, new DefaultRequest()).getFieldMap();
+                }
+            }));
+        }
     }
 
     private List<Transition> getTransitions(Context context, Issue issue) {
         Status source = context.getWebService().getStatus(issue);
-        Status target = context.getWebService().getStatus(this.status);
         Workflow workflow = context.getWebService().getWorkflow(issue);
-        return getTransitions(workflow, source, target);
+        return planner.getTransitions(workflow, source, getTarget(context));
     }
 
-    private static List<Transition> getTransitions(Workflow workflow, Status source, Status target) {
-        if (source.equals(target)) {
-            return Collections.emptyList();
+    private synchronized Status getTarget(Context context) {
+        if (target == null) {
+            target = context.getWebService().getStatus(this.status);
         }
+        return target;
+    }
 
-        List<List<Transition>> results = new ArrayList<>();
+    /**
+     * Transitions up to <code>jobs</code> issues concurrently, the transitioned issues are returned in input order.
+     * When transitioning concurrently, issues that could not be transitioned are reported and skipped.
+     */
+    private class TransitionSupplier implements Supplier<Issue> {
+        private final Context context;
+        private final IssueList issueList;
 
-        List<Transition> result = new ArrayList<>();
-        List<Transition> valid = new ArrayList<>(workflow.getTransitions());
-        Status s = source;
+        private OrderedExecutor<Issue, Issue> executor;
+        private boolean exhausted;
 
-        while (!valid.isEmpty()) {
-            if (LOGGER.isTraceEnabled()) {
-                logTrace(result, valid);
-            }
+        public TransitionSupplier(Context context, IssueList issueList) {
+            this.context = context;
+            this.issueList = issueList;
+        }
 
-            Transition next = null;
-            // search for any transition that results in the target state:
-            for (Transition t : valid) {
-                if (s.equals(t.getSource().getStatus()) && target.equals(t.getTarget().getStatus())
-                        || t.isGlobal() && target.equals(t.getTarget().getStatus())) {
-                    next = t;
-                    break;
-                }
+        @Override
+        public Issue get(final Set<Hint> hints) {
+            // fail early when the target status does not exist:
+            getTarget(context);
+            if (jobs <= 1) {
+                Issue issue = issueList.next(hints);
+                return (issue == null ? null : doTransition(context, issue, hints));
             }
-            if (next == null && !result.isEmpty()) {
-                // search for transitions in existing results:
-                List<List<Transition>> addResults = new ArrayList<>();
-                for (List<Transition> transitions : results) {
-                    int index = -1;
-                    for (int i = 0; i < transitions.size(); i++) {
-                        Transition t = transitions.get(i);
-                        if (!t.isGlobal() && s.equals(t.getSource().getStatus())) {
-                            index = i;
-                            break;
-                        }
-                    }
-                    if (index != -1) {
-                        List<Transition> r = new ArrayList<>(result);
-                        r.addAll(transitions.subList(index, transitions.size()));
-                        if (!results.contains(r) && !addResults.contains(r)) {
-                            addResults.add(r);
-                        }
-                    }
-                }
-                results.addAll(addResults);
+            if (executor == null) {
+                executor = new OrderedExecutor<>("Transition", jobs, jobs);
             }
-            if (next == null) {
-                // use any valid non-global transition:
-                for (Transition t : valid) {
-                    if (!t.isGlobal() && s.equals(t.getSource().getStatus())) {
-                        // check that we don't go back:
-                        boolean back = false;
-                        for (Transition rt : result) {
-                            if (rt.getSource().getStatus() != null
-                                    && rt.getSource().getStatus().equals(t.getTarget().getStatus())) {
-                                back = true;
-                                break;
-                            }
-                        }
-                        if (!back) {
-                            next = t;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (next == null && result.isEmpty()) {
-                // use any valid global transition:
-                for (Transition t : valid) {
-                    if (t.isGlobal() && !s.equals(t.getTarget().getStatus())) {
-                        result.clear();
-                        next = t;
-                        break;
-                    }
-                }
+            try {
+                return next(hints);
+            } catch (RuntimeException | Error e) {
+                executor.shutdown();
+                throw e;
             }
-            if (next == null) {
-                if (result.isEmpty()) {
-                    break;
-                } else {
-                    // walk back and try other transitions
-                    result.remove(result.size() - 1);
-                    s = (result.isEmpty() ? source : result.get(result.size() - 1).getTarget().getStatus());
-                }
-            } else {
-                valid.remove(next);
-                result.add(next);
-                s = next.getTarget().getStatus();
-
-                if (s.equals(target)) {
-                    results.add(new ArrayList<>(result));
+        }
 
-                    if (result.size() == 1) {
-                        // we won't find a shorter transition
-                        break;
+        private Issue next(final Set<Hint> hints) {
+            while (true) {
+                while (!exhausted && !executor.isFull()) {
+                    // the input is always read on the calling thread
+                    final Issue issue = issueList.next(hints);
+                    if (issue == null) {
+                        exhausted = true;
                     } else {
-                        result.remove(result.size() - 1);
-                        s = (result.isEmpty() ? source : result.get(result.size() - 1).getTarget().getStatus());
+                        executor.submit(issue, new Callable<Issue>() {
+                            @Override
+                            public Issue call() {
+                                return doTransition(context, issue, hints);
+                            }
+                        });
                     }
                 }
+                OrderedExecutor.Result<Issue, Issue> result = executor.take();
+                if (result == null) {
+                    // nothing will be submitted anymore, the threads are not needed
+                    executor.shutdown();
+                    return null;
+                }
+                Exception error = result.getError();
+                if (error == null) {
+                    return result.get();
+                }
+                LOGGER.debug("Error transitioning issue: {}", result.getItem(), error);
+                context.getConsole().println("Could not transition " + result.getItem() + ": " + error.getMessage());
             }
         }
+    }
+
+    /**
+     * Fields of a transitioned issue, which are only fetched again when they are accessed
+     */
+    private static class ReloadingFieldMap implements FieldMap {
+        private final Supplier<FieldMap> supplier;
 
-        result = null;
+        private FieldMap fieldMap;
 
-        LOGGER.trace("Found {} valid result(s): {}", results.size(), results);
+        public ReloadingFieldMap(Supplier<FieldMap> supplier) {
+            this.supplier = supplier;
+        }
 
-        for (List<Transition> r : results) {
-            if (result == null || r.size() < result.size()) {
-                result = r;
+        private synchronized FieldMap getFieldMap() {
+            if (fieldMap == null) {
+                fieldMap = supplier.get(Hint.none());
             }
+            return fieldMap;
         }
 
-        if (result == null) {
-            throw new IllegalArgumentException(
-                    "Cannot transition from '" + source.getName() + "' to '" + target.getName() + "'");
+        @Override
+        public Collection<Field> getFields() {
+            return getFieldMap().getFields();
         }
 
-        return result;
-    }
+        @Override
+        public synchronized Collection<Field> getLoadedFields() {
+            return (fieldMap == null ? Collections.<Field> emptyList() : fieldMap.getLoadedFields());
+        }
 
-    private static void logTrace(List<Transition> result, List<Transition> valid) {
-        StringBuilder resultStr = new StringBuilder();
-        for (Transition t : result) {
-            if (resultStr.length() == 0) {
-                Status s = t.getSource().getStatus();
-                resultStr.append(s == null ? "*" : s.getName());
-            }
-            resultStr.append(" -> ");
-            resultStr.append(t.getTarget().getStatus().getName());
+        @Override
+        public void addField(Field field) {
+            getFieldMap().addField(field);
         }
 
-        StringBuilder validStr = new StringBuilder();
-        for (Transition t : valid) {
-            if (validStr.length() > 0) {
-                validStr.append(", ");
-            }
-            validStr.append(t.getName());
+        @Override
+        public Field getField(String idOrName, Schema schema) {
+            return getFieldMap().getField(idOrName, schema);
         }
 
-        LOGGER.trace("Intermediate result: {}", resultStr);
-        LOGGER.trace("Valid transitions: {}", validStr);
+        @Override
+        public Field getFieldById(String id) {
+            return getFieldMap().getFieldById(id);
+        }
+
+        @Override
+        public Field getFieldByName(String name, Schema schema) {
+            return getFieldMap().getFieldByName(name, schema);
+        }
     }
 }
@@ -25,6 +25,7 @@ import com.github.pascalgn.jiracli.context.Context;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.Field;
 import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueHint;
 import com.github.pascalgn.jiracli.model.IssueList;
 import com.github.pascalgn.jiracli.model.Text;
 import com.github.pascalgn.jiracli.model.TextList;
@@ -53,8 +54,10 @@ class Update implements Command {
     @Override
     public Data execute(final Context context, Data input) {
         IssueList issueList = input.toIssueListOrFail();
+        // when checking, let the search return the edit metadata together with the issues:
+        Set<Hint> hints = (check ? Collections.<Hint> singleton(IssueHint.editableFields()) : Hint.none());
         if (dry) {
-            return new TextList(issueList.loadingSupplier(new Function<Issue, Collection<Text>>() {
+            return new TextList(issueList.loadingSupplier(hints, new Function<Issue, Collection<Text>>() {
                 @Override
                 public Collection<Text> apply(Issue issue, Set<Hint> hints) {
                     List<String> invalid;
@@ -85,7 +88,7 @@ class Update implements Command {
             }));
         } else {
             final boolean notifyUsers = !noEmail;
-            return new IssueList(issueList.convertingSupplier(new Function<Issue, Issue>() {
+            return new IssueList(issueList.convertingSupplier(hints, new Function<Issue, Issue>() {
                 @Override
                 public Issue apply(Issue issue, Set<Hint> hints) {
                     try {
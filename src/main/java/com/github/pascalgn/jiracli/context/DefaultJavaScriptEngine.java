@@ -25,12 +25,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -38,12 +41,14 @@ import javax.script.ScriptException;
 import javax.script.SimpleScriptContext;
 
 import org.json.JSONArray;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.pascalgn.jiracli.context.WebService.CreateRequest;
 import com.github.pascalgn.jiracli.context.WebService.Method;
 import com.github.pascalgn.jiracli.context.WebService.Request;
+import com.github.pascalgn.jiracli.model.Field;
 import com.github.pascalgn.jiracli.model.Issue;
 import com.github.pascalgn.jiracli.model.IssueList;
 import com.github.pascalgn.jiracli.model.Schema;
@@ -63,6 +68,29 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
     private static final String INIT_JS = "if (typeof forEach !== 'function') { forEach = Array.prototype.forEach; } "
             + "if (typeof println !== 'function') { println = function(obj) { print(obj); print('\\n'); }; }";
 
+    /**
+     * Creates the script object for an {@link IssueView}. Field values are only converted when they are accessed.
+     */
+    private static final String ISSUE_FUNCTION = "function(view) { var fields = {}; "
+            + "var define = function(id) { "
+            + "var set = function(value) { Object.defineProperty(fields, id, "
+            + "{ value: value, writable: true, enumerable: true, configurable: true }); return value; }; "
+            + "Object.defineProperty(fields, id, { get: function() { return set(JSON.parse(view.getJson(id))); }, "
+            + "set: set, enumerable: true, configurable: true }); }; "
+            + "var ids = view.getIds(); for (var i = 0; i < ids.length; i++) { define(ids[i]); } "
+            + "return { key: view.getKey(), fields: fields }; }";
+
+    private static final String ISSUE_JS = "(" + ISSUE_FUNCTION + ")(input)";
+    private static final String ISSUES_JS = "(function(views) { var toIssue = " + ISSUE_FUNCTION + "; "
+            + "var issues = []; for (var i = 0; i < views.length; i++) { issues.push(toIssue(views[i])); } "
+            + "return issues; })(input)";
+
+    private static final String PARSE_JS = "JSON.parse(input)";
+    private static final String STRINGIFY_JS = "JSON.stringify(input)";
+    private static final String BOOLEAN_JS = "(input ? true : false)";
+
+    private static final int MAX_COMPILED_SCRIPTS = 100;
+
     private final Console console;
     private final WebService webService;
 
@@ -71,11 +99,21 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
 
     private final Map<String, Object> references;
 
+    private final Map<String, CompiledScript> compiledScripts;
+
     public DefaultJavaScriptEngine(Console console, WebService webService) {
         this.console = console;
         this.webService = webService;
         ScriptEngineManager engineManager = new ScriptEngineManager();
         engine = engineManager.getEngineByExtension("js");
+        compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > MAX_COMPILED_SCRIPTS;
+            }
+        };
         if (engine == null) {
             LOGGER.warn("No JavaScript engine available!");
             scriptContext = null;
@@ -121,7 +159,7 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
 
     @Override
     public TextList evaluate(String js, Issue input) {
-        Object inputObj = toJsonObject(ConversionUtils.toJson(input).toString());
+        Object inputObj = toScriptObject(input);
         Object resultObj = doEvaluate(js, inputObj);
         return parseResult(resultObj);
     }
@@ -129,8 +167,11 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
     @Override
     public TextList evaluate(String js, IssueList input) {
         List<Issue> issues = input.remaining(Hint.none());
-        String inputStr = toJsonArray(issues);
-        Object inputObj = toJsonObject(inputStr);
+        IssueView[] views = new IssueView[issues.size()];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new IssueView(issues.get(i));
+        }
+        Object inputObj = evaluateInternal(ISSUES_JS, views);
         Object resultObj = doEvaluate(js, inputObj);
         return parseResult(resultObj);
     }
@@ -143,57 +184,69 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
 
     @Override
     public boolean test(String js, Issue input) {
-        Object inputObj = toJsonObject(ConversionUtils.toJson(input).toString());
+        Object inputObj = toScriptObject(input);
         Object resultObj = doEvaluate(js, inputObj);
         return parseBooleanResult(resultObj);
     }
 
+    @Override
+    public JavaScriptEngine newInstance() {
+        return new DefaultJavaScriptEngine(console, webService);
+    }
+
     private Object doEvaluate(String js, Object input) {
         Objects.requireNonNull(input);
         Objects.requireNonNull(engine, "No JavaScript engine available!");
         Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
         bindings.put("input", input);
         bindings.putAll(references);
-        try {
-            return engine.eval(js);
-        } catch (ScriptException e) {
-            throw new IllegalArgumentException("Could not evaluate JavaScript: " + e.getLocalizedMessage(), e);
-        }
+        return eval(js);
+    }
+
+    private Object toScriptObject(Issue issue) {
+        return evaluateInternal(ISSUE_JS, new IssueView(issue));
     }
 
     private Object toJsonObject(String json) {
-        Objects.requireNonNull(engine, "No JavaScript engine available!");
-        scriptContext.getBindings(ScriptContext.ENGINE_SCOPE).put("input", json);
-        return eval("JSON.parse(input)");
+        return evaluateInternal(PARSE_JS, json);
     }
 
     private String toJsonString(Object json) {
+        return Objects.toString(evaluateInternal(STRINGIFY_JS, json), "");
+    }
+
+    private Object evaluateInternal(String js, Object input) {
         Objects.requireNonNull(engine, "No JavaScript engine available!");
-        scriptContext.getBindings(ScriptContext.ENGINE_SCOPE).put("input", json);
-        return Objects.toString(eval("JSON.stringify(input)"), "");
+        scriptContext.getBindings(ScriptContext.ENGINE_SCOPE).put("input", input);
+        return eval(js);
     }
 
     private Object eval(String js) {
         try {
-            return engine.eval(js);
+            CompiledScript compiledScript = getCompiledScript(js);
+            if (compiledScript == null) {
+                return engine.eval(js);
+            } else {
+                return compiledScript.eval();
+            }
         } catch (ScriptException e) {
             throw new IllegalArgumentException("Could not evaluate JavaScript: " + e.getLocalizedMessage(), e);
         }
     }
 
-    private static String toJsonArray(List<Issue> issues) {
-        StringBuilder str = new StringBuilder("[");
-        boolean first = true;
-        for (Issue issue : issues) {
-            if (first) {
-                first = false;
-            } else {
-                str.append(",");
-            }
-            str.append(ConversionUtils.toJson(issue));
+    /**
+     * @return The compiled script or <code>null</code> if the engine does not support compilation
+     */
+    private CompiledScript getCompiledScript(String js) throws ScriptException {
+        if (!(engine instanceof Compilable)) {
+            return null;
         }
-        str.append("]");
-        return str.toString();
+        CompiledScript compiledScript = compiledScripts.get(js);
+        if (compiledScript == null) {
+            compiledScript = ((Compilable) engine).compile(js);
+            compiledScripts.put(js, compiledScript);
+        }
+        return compiledScript;
     }
 
     private TextList parseResult(Object result) {
@@ -255,7 +308,19 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
     }
 
     private boolean parseBooleanResult(Object result) {
-        Object bool = doEvaluate("(input ? true : false)", result);
+        if (result == null) {
+            return false;
+        } else if (result instanceof Boolean) {
+            return (Boolean) result;
+        } else if (result instanceof String) {
+            return !((String) result).isEmpty();
+        } else if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue() != 0;
+        } else if (result instanceof Double) {
+            double d = (Double) result;
+            return d != 0 && !Double.isNaN(d);
+        }
+        Object bool = evaluateInternal(BOOLEAN_JS, result);
         if (bool == Boolean.TRUE) {
             return true;
         } else if (bool == Boolean.FALSE) {
@@ -265,6 +330,35 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
         }
     }
 
+    /**
+     * Read-only view of an issue, used to create the script object without converting all fields to Json
+     */
+    public static class IssueView {
+        private final Issue issue;
+        private final Map<String, Field> fields;
+
+        public IssueView(Issue issue) {
+            this.issue = issue;
+            this.fields = new LinkedHashMap<>();
+            for (Field field : issue.getFieldMap().getLoadedFields()) {
+                fields.put(field.getId(), field);
+            }
+        }
+
+        public String getKey() {
+            return issue.getKey();
+        }
+
+        public String[] getIds() {
+            return fields.keySet().toArray(new String[fields.size()]);
+        }
+
+        public String getJson(String id) {
+            Field field = fields.get(id);
+            return (field == null ? "null" : JSONObject.valueToString(field.getValue().get()));
+        }
+    }
+
     public class JavaScriptConsole {
         public void print(String str) {
             console.print(str);
@@ -363,13 +457,11 @@ public class DefaultJavaScriptEngine implements JavaScriptEngine {
             if (issues.isEmpty()) {
                 return null;
             } else if (issues.size() == 1) {
-                String json = ConversionUtils.toJson(issues.get(0)).toString();
-                return toJsonObject(json);
+                return toScriptObject(issues.get(0));
             } else {
                 List<Object> result = new ArrayList<>();
                 for (Issue issue : issues) {
-                    String json = ConversionUtils.toJson(issue).toString();
-                    result.add(toJsonObject(json));
+                    result.add(toScriptObject(issue));
                 }
                 return result;
             }
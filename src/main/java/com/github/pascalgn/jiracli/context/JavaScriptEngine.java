@@ -57,4 +57,9 @@ public interface JavaScriptEngine {
      * value evaluates to true, otherwise <code>false</code>
      */
     boolean test(String js, Issue input);
+
+    /**
+     * Returns a new engine with its own script state, which can be used concurrently to this engine
+     */
+    JavaScriptEngine newInstance();
 }
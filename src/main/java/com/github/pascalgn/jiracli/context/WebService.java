@@ -15,6 +15,7 @@
  */
 package com.github.pascalgn.jiracli.context;
 
+import java.io.File;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Collection;
@@ -57,6 +58,18 @@ public interface WebService extends AutoCloseable {
 
     interface Cache {
         void clear();
+
+        /**
+         * @return A human readable description of the cache contents, one line per entry
+         */
+        List<String> getInfo();
+
+        /**
+         * Removes expired entries from the persistent cache
+         *
+         * @return The number of removed entries
+         */
+        int prune();
     }
 
     /**
@@ -69,6 +82,11 @@ public interface WebService extends AutoCloseable {
 
     void download(URI uri, Consumer<InputStream> consumer);
 
+    /**
+     * Downloads the content starting at the given offset, the stream passed to the consumer always starts there
+     */
+    void download(URI uri, long offset, Consumer<InputStream> consumer);
+
     Schema getSchema();
 
     /**
@@ -102,12 +120,24 @@ public interface WebService extends AutoCloseable {
 
     List<Issue> searchIssues(String jql, Request request);
 
+    /**
+     * @return The number of issues matching the given query, usually determined without fetching the issues
+     */
+    int countIssues(String jql);
+
     Issue getParent(Issue issue, Request request);
 
     Workflow getWorkflow(Issue issue);
 
     List<Attachment> getAttachments(Issue issue);
 
+    /**
+     * Uploads the given files as new attachments of the issue
+     *
+     * @return The new attachments
+     */
+    List<Attachment> addAttachments(Issue issue, List<File> files);
+
     Status getStatus(Issue issue);
 
     List<Change> getChanges(Issue issue);
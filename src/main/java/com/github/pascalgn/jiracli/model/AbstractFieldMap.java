@@ -24,6 +24,9 @@ public abstract class AbstractFieldMap implements FieldMap {
         if (field == null) {
             field = getFieldByName(getLoadedFields(), idOrName, schema);
         }
+        if (field == null) {
+            field = loadField(idOrName);
+        }
         if (field == null) {
             field = getFieldById(getFields(), idOrName);
         }
@@ -36,12 +39,25 @@ public abstract class AbstractFieldMap implements FieldMap {
     @Override
     public final Field getFieldById(String id) {
         Field field = getFieldById(getLoadedFields(), id);
+        if (field == null) {
+            field = loadField(id);
+        }
         if (field == null) {
             field = getFieldById(getFields(), id);
         }
         return field;
     }
 
+    /**
+     * Called when the given field has not been loaded, before all fields will be loaded
+     *
+     * @param idOrName ID or name of the field
+     * @return The field, if it could be loaded on its own, otherwise <code>null</code>
+     */
+    protected Field loadField(String idOrName) {
+        return null;
+    }
+
     protected static Field getFieldById(Collection<Field> fields, String id) {
         for (Field field : fields) {
             if (field.getId().equals(id)) {
@@ -54,6 +70,9 @@ public abstract class AbstractFieldMap implements FieldMap {
     @Override
     public final Field getFieldByName(String name, Schema schema) {
         Field field = getFieldByName(getLoadedFields(), name, schema);
+        if (field == null) {
+            field = loadField(name);
+        }
         if (field == null) {
             field = getFieldByName(getFields(), name, schema);
         }
@@ -61,6 +80,11 @@ public abstract class AbstractFieldMap implements FieldMap {
     }
 
     protected static Field getFieldByName(Collection<Field> fields, String name, Schema schema) {
+        String id = schema.findId(name);
+        if (id != null) {
+            return getFieldById(fields, id);
+        }
+        // unknown or ambiguous name, compare with the names of all fields
         String lower = name.toLowerCase();
         for (Field field : fields) {
             String fieldName = schema.getName(field.getId());
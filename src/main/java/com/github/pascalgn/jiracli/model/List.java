@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
 
+import com.github.pascalgn.jiracli.util.CountingSupplier;
 import com.github.pascalgn.jiracli.util.Function;
 import com.github.pascalgn.jiracli.util.Hint;
 import com.github.pascalgn.jiracli.util.Supplier;
@@ -57,6 +58,23 @@ public abstract class List<T extends Data> extends Data {
         return supplier.get(hints);
     }
 
+    /**
+     * Returns the number of remaining items. When the supplier can count the items, they will not be fetched.
+     */
+    public int count(Set<Hint> hints) {
+        if (supplier instanceof CountingSupplier) {
+            int count = ((CountingSupplier<T>) supplier).count(hints);
+            if (count != -1) {
+                return count;
+            }
+        }
+        int count = 0;
+        while (next(hints) != null) {
+            ++count;
+        }
+        return count;
+    }
+
     public java.util.List<T> remaining(Set<Hint> hints) {
         java.util.List<T> result = new ArrayList<>();
         T item;
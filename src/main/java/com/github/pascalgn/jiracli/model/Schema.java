@@ -28,6 +28,12 @@ public interface Schema {
      */
     String getId(String field);
 
+    /**
+     * @param field Field name or ID
+     * @return The field ID or <code>null</code> if the field is unknown or the name is ambiguous
+     */
+    String findId(String field);
+
     /**
      * @param field Field ID
      */
@@ -0,0 +1,829 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.parser;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.github.pascalgn.jiracli.model.Converter;
+import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.model.FieldMap;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.Schema;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.AndExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.ArithmeticValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.CompareExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.DurationValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.EmptyExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.ExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.FieldNameContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.FieldValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.FunctionValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.InExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.MatchExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.NotExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.NumberValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.OrExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.ParenExpressionContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.StringValueContext;
+import com.github.pascalgn.jiracli.parser.FilterExpressionParser.ValueContext;
+
+/**
+ * A compiled filter expression like <code>status = "Done" and created &gt; now() - 7d</code>.
+ * <p>
+ * The expression is translated once into a tree of typed nodes, which read the field values of every issue directly.
+ * Multi-valued fields (like labels) match when any of their values match.
+ */
+public final class FilterExpression {
+    /**
+     * Returns the compiled expression, field names and converters will be resolved using the given schema
+     *
+     * @param schema The schema, may be null
+     * @throws IllegalArgumentException If the expression is invalid
+     */
+    public static FilterExpression compile(String str, Schema schema) {
+        FilterExpressionLexer lexer = new FilterExpressionLexer(new ANTLRInputStream(str));
+        FilterExpressionParser parser = new FilterExpressionParser(new CommonTokenStream(lexer));
+
+        ErrorListener errorListener = new ErrorListener(str);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+
+        ExpressionContext expression = parser.filterExpression().expression();
+        Compiler compiler = new Compiler(schema);
+        Predicate predicate = compiler.toPredicate(expression);
+        return new FilterExpression(predicate, new ArrayList<>(compiler.fields));
+    }
+
+    private final Predicate predicate;
+    private final List<String> fields;
+
+    private FilterExpression(Predicate predicate, List<String> fields) {
+        this.predicate = predicate;
+        this.fields = fields;
+    }
+
+    /**
+     * @return The names of all fields used in the expression
+     */
+    public List<String> getFields() {
+        return Collections.unmodifiableList(fields);
+    }
+
+    public boolean test(Issue issue) {
+        return predicate.test(issue);
+    }
+
+    private enum Type {
+        STRING, NUMBER, DATE, DURATION, FIELD;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static class Compiler {
+        private final Schema schema;
+        private final Set<String> fields = new LinkedHashSet<>();
+
+        public Compiler(Schema schema) {
+            this.schema = schema;
+        }
+
+        public Predicate toPredicate(ExpressionContext ctx) {
+            if (ctx instanceof ParenExpressionContext) {
+                return toPredicate(((ParenExpressionContext) ctx).expression());
+            } else if (ctx instanceof NotExpressionContext) {
+                return new Not(toPredicate(((NotExpressionContext) ctx).expression()));
+            } else if (ctx instanceof AndExpressionContext) {
+                AndExpressionContext and = (AndExpressionContext) ctx;
+                return new And(toPredicate(and.expression(0)), toPredicate(and.expression(1)));
+            } else if (ctx instanceof OrExpressionContext) {
+                OrExpressionContext or = (OrExpressionContext) ctx;
+                return new Or(toPredicate(or.expression(0)), toPredicate(or.expression(1)));
+            } else if (ctx instanceof CompareExpressionContext) {
+                CompareExpressionContext compare = (CompareExpressionContext) ctx;
+                Operand left = toOperand(compare.value(0));
+                Operand right = toOperand(compare.value(1));
+                Type type = getCommonType(left, right);
+                return new Compare(compare.op.getType(), left.coerce(type), right.coerce(type), type);
+            } else if (ctx instanceof InExpressionContext) {
+                InExpressionContext in = (InExpressionContext) ctx;
+                Operand left = toOperand(in.value(0));
+                List<Operand> values = new ArrayList<>();
+                for (int i = 1; i < in.value().size(); i++) {
+                    values.add(toOperand(in.value(i)));
+                }
+                Type type = left.type;
+                for (Operand value : values) {
+                    type = getCommonType(type, value.type);
+                }
+                type = (type == Type.FIELD ? Type.STRING : type);
+                List<Operand> coerced = new ArrayList<>();
+                for (Operand value : values) {
+                    coerced.add(value.coerce(type));
+                }
+                Predicate predicate = new In(left.coerce(type), coerced, type);
+                return (in.NOT() == null ? predicate : new Absent(left.coerce(type), type, predicate));
+            } else if (ctx instanceof MatchExpressionContext) {
+                MatchExpressionContext match = (MatchExpressionContext) ctx;
+                Operand left = toOperand(match.value());
+                String regexp = unquote(match.STRING().getText());
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(regexp);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid regular expression: " + regexp, e);
+                }
+                Predicate predicate = new Match(left.coerce(Type.STRING), pattern);
+                if (match.op.getType() == FilterExpressionLexer.MATCH) {
+                    return predicate;
+                } else {
+                    return new Absent(left.coerce(Type.STRING), Type.STRING, predicate);
+                }
+            } else if (ctx instanceof EmptyExpressionContext) {
+                EmptyExpressionContext empty = (EmptyExpressionContext) ctx;
+                Predicate predicate = new Empty(toOperand(empty.value()));
+                return (empty.NOT() == null ? predicate : new Not(predicate));
+            } else {
+                throw new IllegalArgumentException("Invalid expression: " + ctx.getText());
+            }
+        }
+
+        private Operand toOperand(ValueContext ctx) {
+            if (ctx instanceof StringValueContext) {
+                return new Constant(Type.STRING, unquote(((StringValueContext) ctx).STRING().getText()));
+            } else if (ctx instanceof NumberValueContext) {
+                return new Constant(Type.NUMBER, new BigDecimal(ctx.getText()));
+            } else if (ctx instanceof DurationValueContext) {
+                return new Constant(Type.DURATION, parseDuration(ctx.getText()));
+            } else if (ctx instanceof FieldValueContext) {
+                List<String> names = new ArrayList<>();
+                for (FieldNameContext fieldName : ((FieldValueContext) ctx).fieldName()) {
+                    String name = fieldName.getText();
+                    names.add(fieldName.QUOTED_NAME() == null ? name : name.substring(1, name.length() - 1));
+                }
+                if (!names.get(0).equals("key")) {
+                    fields.add(names.get(0));
+                }
+                return new FieldOperand(names.toArray(new String[names.size()]), schema);
+            } else if (ctx instanceof FunctionValueContext) {
+                return toFunction((FunctionValueContext) ctx);
+            } else if (ctx instanceof ArithmeticValueContext) {
+                ArithmeticValueContext arithmetic = (ArithmeticValueContext) ctx;
+                Operand left = toOperand(arithmetic.value(0));
+                Operand right = toOperand(arithmetic.value(1));
+                boolean minus = (arithmetic.op.getType() == FilterExpressionLexer.MINUS);
+                Operand operand = Arithmetic.create(left, right, minus);
+                if (operand instanceof Arithmetic && left instanceof Constant && right instanceof Constant) {
+                    return new Constant(operand.type, operand.getValue(null));
+                } else {
+                    return operand;
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid value: " + ctx.getText());
+            }
+        }
+
+        private static Operand toFunction(FunctionValueContext ctx) {
+            String name = ctx.NAME().getText();
+            List<ValueContext> args = ctx.value();
+            if (name.equalsIgnoreCase("now") && args.isEmpty()) {
+                return new Constant(Type.DATE, System.currentTimeMillis());
+            } else if (name.equalsIgnoreCase("date") && args.size() == 1 && args.get(0) instanceof StringValueContext) {
+                String date = unquote(((StringValueContext) args.get(0)).STRING().getText());
+                return new Constant(Type.STRING, date).coerce(Type.DATE);
+            } else {
+                throw new IllegalArgumentException("Unknown function: " + ctx.getText()
+                        + " (use now() or date(\"yyyy-MM-dd\"))");
+            }
+        }
+
+        private static Type getCommonType(Operand left, Operand right) {
+            Type type = getCommonType(left.type, right.type);
+            return (type == Type.FIELD ? Type.STRING : type);
+        }
+
+        private static Type getCommonType(Type left, Type right) {
+            if (left == right || right == Type.FIELD) {
+                return left;
+            } else if (left == Type.FIELD) {
+                return right;
+            } else if (left == Type.STRING && right != Type.DURATION) {
+                return right;
+            } else if (right == Type.STRING && left != Type.DURATION) {
+                return left;
+            } else {
+                throw new IllegalArgumentException("Cannot compare " + left + " with " + right);
+            }
+        }
+    }
+
+    private static String unquote(String str) {
+        StringBuilder s = new StringBuilder();
+        for (int p = 1; p < str.length() - 1; p++) {
+            char c = str.charAt(p);
+            if (c == '\\' && p + 1 < str.length() - 1) {
+                char next = str.charAt(++p);
+                if (next == 'n') {
+                    s.append('\n');
+                } else if (next == 'r') {
+                    s.append('\r');
+                } else if (next == 't') {
+                    s.append('\t');
+                } else if (next == '\\' || next == '"' || next == '\'') {
+                    s.append(next);
+                } else {
+                    // keep other escapes, which are used by regular expressions
+                    s.append(c).append(next);
+                }
+            } else {
+                s.append(c);
+            }
+        }
+        return s.toString();
+    }
+
+    private static long parseDuration(String str) {
+        long value = Long.parseLong(str.substring(0, str.length() - 1));
+        char unit = Character.toLowerCase(str.charAt(str.length() - 1));
+        switch (unit) {
+        case 'w':
+            return TimeUnit.DAYS.toMillis(value * 7);
+        case 'd':
+            return TimeUnit.DAYS.toMillis(value);
+        case 'h':
+            return TimeUnit.HOURS.toMillis(value);
+        case 'm':
+            return TimeUnit.MINUTES.toMillis(value);
+        case 's':
+            return TimeUnit.SECONDS.toMillis(value);
+        default:
+            throw new IllegalArgumentException("Invalid duration: " + str);
+        }
+    }
+
+    private static final String[] DATE_FORMATS = { "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd HH:mm", "yyyy-MM-dd" };
+
+    private static final ThreadLocal<SimpleDateFormat[]> DATE_FORMATTERS = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            SimpleDateFormat[] formats = new SimpleDateFormat[DATE_FORMATS.length];
+            for (int i = 0; i < formats.length; i++) {
+                formats[i] = new SimpleDateFormat(DATE_FORMATS[i]);
+                formats[i].setLenient(false);
+            }
+            return formats;
+        }
+    };
+
+    /**
+     * @return The value of the given type or <code>null</code> if the string cannot be converted
+     */
+    private static Object convert(String str, Type type) {
+        switch (type) {
+        case NUMBER:
+            try {
+                return normalize(new BigDecimal(str.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+        case DATE:
+            for (SimpleDateFormat format : DATE_FORMATTERS.get()) {
+                ParsePosition pos = new ParsePosition(0);
+                Date date = format.parse(str, pos);
+                if (date != null && pos.getIndex() == str.length()) {
+                    return date.getTime();
+                }
+            }
+            return null;
+
+        case DURATION:
+            return null;
+
+        default:
+            return str;
+        }
+    }
+
+    private static Object normalize(BigDecimal number) {
+        return (number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(Object left, Object right) {
+        return ((Comparable) left).compareTo(right);
+    }
+
+    private interface Predicate {
+        boolean test(Issue issue);
+    }
+
+    private abstract static class Operand {
+        protected final Type type;
+
+        public Operand(Type type) {
+            this.type = type;
+        }
+
+        /**
+         * @return The single value of this operand, or <code>null</code>
+         */
+        public abstract Object getValue(Issue issue);
+
+        /**
+         * @return All values of this operand, converted to the given type
+         */
+        public List<Object> getValues(Issue issue, Type target) {
+            Object value = getValue(issue);
+            return (value == null ? Collections.emptyList() : Collections.singletonList(value));
+        }
+
+        /**
+         * @return An operand that provides values of the given type
+         */
+        public Operand coerce(Type target) {
+            if (type == target || (type == Type.FIELD && target != Type.DURATION)) {
+                return this;
+            } else {
+                throw new IllegalArgumentException("Cannot convert " + type + " to " + target);
+            }
+        }
+    }
+
+    private static class Constant extends Operand {
+        private final Object value;
+
+        public Constant(Type type, Object value) {
+            super(type);
+            this.value = (value instanceof BigDecimal ? normalize((BigDecimal) value) : value);
+        }
+
+        @Override
+        public Object getValue(Issue issue) {
+            return value;
+        }
+
+        @Override
+        public Operand coerce(Type target) {
+            if (type == Type.STRING && target != type) {
+                Object converted = convert((String) value, target);
+                if (converted == null) {
+                    throw new IllegalArgumentException("Invalid " + target + ": " + value);
+                }
+                return new Constant(target, converted);
+            }
+            return super.coerce(target);
+        }
+    }
+
+    /**
+     * The value of an issue field, like <code>status</code> or <code>fixVersions.name</code>
+     */
+    private static class FieldOperand extends Operand {
+        private final String[] names;
+        private final Schema schema;
+
+        /**
+         * The field ID, once it has been resolved. Remains <code>null</code> when the name is not known to the schema,
+         * it will be resolved for every issue then.
+         */
+        private String id;
+        private boolean resolved;
+        private Converter converter;
+
+        public FieldOperand(String[] names, Schema schema) {
+            super(Type.FIELD);
+            this.names = names;
+            this.schema = schema;
+        }
+
+        @Override
+        public Object getValue(Issue issue) {
+            List<String> values = getStrings(issue);
+            return (values.isEmpty() ? null : values.get(0));
+        }
+
+        @Override
+        public List<Object> getValues(Issue issue, Type target) {
+            List<String> strings = getStrings(issue);
+            List<Object> values = new ArrayList<>(strings.size());
+            for (String str : strings) {
+                Object value = convert(str, target);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            return values;
+        }
+
+        private List<String> getStrings(Issue issue) {
+            if (names.length == 1 && names[0].equals("key")) {
+                return Collections.singletonList(issue.getKey());
+            }
+            FieldMap fieldMap = issue.getFieldMap();
+            String fieldId = getId();
+            Field field = (fieldId == null ? fieldMap.getField(names[0], schema) : fieldMap.getFieldById(fieldId));
+            if (field == null) {
+                return Collections.emptyList();
+            }
+            List<String> values = new ArrayList<>(1);
+            Object value = field.getValue().get();
+            if (names.length == 1 && !(value instanceof JSONArray) && schema != null) {
+                addValue(values, getConverter(field.getId()).toString(value));
+            } else {
+                addValues(values, value, 1);
+            }
+            return values;
+        }
+
+        private void addValues(List<String> values, Object value, int index) {
+            if (value == null || value == JSONObject.NULL) {
+                return;
+            } else if (value instanceof JSONArray) {
+                for (Object element : (JSONArray) value) {
+                    addValues(values, element, index);
+                }
+            } else if (index < names.length) {
+                if (value instanceof JSONObject) {
+                    addValues(values, ((JSONObject) value).opt(names[index]), index + 1);
+                }
+            } else if (value instanceof JSONObject) {
+                JSONObject obj = (JSONObject) value;
+                for (String name : new String[] { "name", "value", "key" }) {
+                    if (obj.has(name)) {
+                        addValue(values, obj.optString(name));
+                        return;
+                    }
+                }
+                addValue(values, obj.toString());
+            } else {
+                addValue(values, value.toString());
+            }
+        }
+
+        private static void addValue(List<String> values, String value) {
+            if (!value.isEmpty()) {
+                values.add(value);
+            }
+        }
+
+        private String getId() {
+            if (!resolved) {
+                if (schema == null) {
+                    // without a schema, only field IDs can be used
+                    id = names[0];
+                } else {
+                    // unknown or ambiguous names will be resolved per issue
+                    id = schema.findId(names[0]);
+                }
+                resolved = true;
+            }
+            return id;
+        }
+
+        private Converter getConverter(String fieldId) {
+            if (id == null) {
+                return schema.getConverter(fieldId);
+            }
+            if (converter == null) {
+                converter = schema.getConverter(fieldId);
+            }
+            return converter;
+        }
+    }
+
+    private static class Arithmetic extends Operand {
+        private final Operand left;
+        private final Operand right;
+        private final boolean minus;
+
+        public static Operand create(Operand left, Operand right, boolean minus) {
+            Type l = left.type;
+            Type r = right.type;
+            if (l == Type.FIELD && r == Type.DURATION) {
+                l = Type.DATE;
+            } else if (l == Type.DATE && r == Type.FIELD && minus) {
+                r = Type.DATE;
+            } else if ((l == Type.FIELD && r == Type.NUMBER) || (l == Type.NUMBER && r == Type.FIELD)) {
+                l = Type.NUMBER;
+                r = Type.NUMBER;
+            }
+            Type type;
+            if (l == Type.NUMBER && r == Type.NUMBER) {
+                type = Type.NUMBER;
+            } else if (l == Type.DATE && r == Type.DURATION) {
+                type = Type.DATE;
+            } else if (l == Type.DURATION && r == Type.DURATION) {
+                type = Type.DURATION;
+            } else if (l == Type.DATE && r == Type.DATE && minus) {
+                type = Type.DURATION;
+            } else if (l == Type.FIELD && r == Type.FIELD && minus) {
+                // the difference of two date fields, like resolutiondate - created
+                l = Type.DATE;
+                r = Type.DATE;
+                type = Type.DURATION;
+            } else {
+                throw new IllegalArgumentException("Invalid operands: " + left.type + (minus ? " - " : " + ")
+                        + right.type);
+            }
+            return new Arithmetic(type, new Single(left, l), new Single(right, r), minus);
+        }
+
+        private Arithmetic(Type type, Operand left, Operand right, boolean minus) {
+            super(type);
+            this.left = left;
+            this.right = right;
+            this.minus = minus;
+        }
+
+        @Override
+        public Object getValue(Issue issue) {
+            Object l = left.getValue(issue);
+            Object r = (l == null ? null : right.getValue(issue));
+            if (l == null || r == null) {
+                return null;
+            } else if (l instanceof BigDecimal) {
+                BigDecimal result = (minus ? ((BigDecimal) l).subtract((BigDecimal) r) : ((BigDecimal) l).add(
+                        (BigDecimal) r));
+                return normalize(result);
+            } else {
+                return (minus ? (Long) l - (Long) r : (Long) l + (Long) r);
+            }
+        }
+    }
+
+    /**
+     * The first value of the given operand, converted to the given type
+     */
+    private static class Single extends Operand {
+        private final Operand operand;
+
+        public Single(Operand operand, Type type) {
+            super(type);
+            this.operand = operand.coerce(type);
+        }
+
+        @Override
+        public Object getValue(Issue issue) {
+            List<Object> values = operand.getValues(issue, type);
+            return (values.isEmpty() ? null : values.get(0));
+        }
+    }
+
+    private static class Not implements Predicate {
+        private final Predicate predicate;
+
+        public Not(Predicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            return !predicate.test(issue);
+        }
+    }
+
+    private static class And implements Predicate {
+        private final Predicate left;
+        private final Predicate right;
+
+        public And(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            return left.test(issue) && right.test(issue);
+        }
+    }
+
+    private static class Or implements Predicate {
+        private final Predicate left;
+        private final Predicate right;
+
+        public Or(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            return left.test(issue) || right.test(issue);
+        }
+    }
+
+    /**
+     * Matches when any pair of values matches, <code>!=</code> matches when no pair of values is equal
+     */
+    private static class Compare implements Predicate {
+        private final int op;
+        private final Operand left;
+        private final Operand right;
+        private final Type type;
+
+        public Compare(int op, Operand left, Operand right, Type type) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.type = type;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            List<Object> leftValues = left.getValues(issue, type);
+            if (leftValues.isEmpty()) {
+                return false;
+            }
+            List<Object> rightValues = right.getValues(issue, type);
+            if (rightValues.isEmpty()) {
+                return false;
+            }
+            boolean notEqual = (op == FilterExpressionLexer.NE);
+            for (Object l : leftValues) {
+                for (Object r : rightValues) {
+                    int result = compare(l, r);
+                    if (notEqual) {
+                        if (result == 0) {
+                            return false;
+                        }
+                    } else if (matches(result)) {
+                        return true;
+                    }
+                }
+            }
+            return notEqual;
+        }
+
+        private boolean matches(int result) {
+            switch (op) {
+            case FilterExpressionLexer.EQ:
+                return result == 0;
+            case FilterExpressionLexer.LT:
+                return result < 0;
+            case FilterExpressionLexer.LE:
+                return result <= 0;
+            case FilterExpressionLexer.GT:
+                return result > 0;
+            case FilterExpressionLexer.GE:
+                return result >= 0;
+            default:
+                throw new IllegalStateException("Unknown operator: " + op);
+            }
+        }
+    }
+
+    private static class In implements Predicate {
+        private final Operand left;
+        private final List<Operand> values;
+        private final Type type;
+
+        /**
+         * Contains all values if they are constant, otherwise they will be evaluated for each issue
+         */
+        private final Set<Object> constants;
+
+        public In(Operand left, List<Operand> values, Type type) {
+            this.left = left;
+            this.values = values;
+            this.type = type;
+            Set<Object> set = new HashSet<>();
+            for (Operand value : values) {
+                if (value instanceof Constant) {
+                    set.add(value.getValue(null));
+                } else {
+                    set = null;
+                    break;
+                }
+            }
+            this.constants = set;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            List<Object> leftValues = left.getValues(issue, type);
+            if (leftValues.isEmpty()) {
+                return false;
+            }
+            Set<Object> set = constants;
+            if (set == null) {
+                set = new HashSet<>();
+                for (Operand value : values) {
+                    set.addAll(value.getValues(issue, type));
+                }
+            }
+            for (Object value : leftValues) {
+                if (set.contains(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Match implements Predicate {
+        private final Operand left;
+        private final Pattern pattern;
+
+        public Match(Operand left, Pattern pattern) {
+            this.left = left;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            for (Object value : left.getValues(issue, Type.STRING)) {
+                if (pattern.matcher((String) value).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matches when the operand has a value, but the given predicate does not match
+     */
+    private static class Absent implements Predicate {
+        private final Operand operand;
+        private final Type type;
+        private final Predicate predicate;
+
+        public Absent(Operand operand, Type type, Predicate predicate) {
+            this.operand = operand;
+            this.type = type;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            return !operand.getValues(issue, type).isEmpty() && !predicate.test(issue);
+        }
+    }
+
+    private static class Empty implements Predicate {
+        private final Operand operand;
+
+        public Empty(Operand operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(Issue issue) {
+            return operand.getValues(issue, Type.STRING).isEmpty();
+        }
+    }
+
+    private static class ErrorListener extends BaseErrorListener {
+        private final String expression;
+
+        public ErrorListener(String expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                int charPositionInLine, String msg, RecognitionException e) {
+            throw new IllegalArgumentException("Invalid expression: " + expression + " (position "
+                    + (charPositionInLine + 1) + ": " + msg + ")", e);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.github.pascalgn.jiracli.util;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -138,6 +139,23 @@ public class IOUtils {
         }
     }
 
+    /**
+     * Skips exactly the given number of bytes, throws an exception if the stream ends before
+     */
+    public static void skip(InputStream input, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = input.skip(remaining);
+            if (skipped <= 0) {
+                if (input.read() == -1) {
+                    throw new EOFException("Unexpected end of stream, " + remaining + " bytes remaining");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
     public static void write(File file, String content) {
         write(file, CHARSET, content);
     }
@@ -154,20 +172,34 @@ public class IOUtils {
      * Creates a temporary file and deletes it after the function has completed
      */
     public static <T> T withTemporaryFile(String prefix, String suffix, Function<File, T> function) {
+        File tempFile = createTemporaryFile(prefix, suffix);
         try {
-            File tempFile = File.createTempFile(prefix, suffix);
-            try {
-                return function.apply(tempFile, Hint.none());
-            } finally {
-                if (!tempFile.delete() && tempFile.exists()) {
-                    LOGGER.warn("Could not delete temporary file: {}", tempFile);
-                }
-            }
+            return function.apply(tempFile, Hint.none());
+        } finally {
+            deleteTemporaryFile(tempFile);
+        }
+    }
+
+    /**
+     * Creates a new, empty temporary file, which should be removed with {@link #deleteTemporaryFile(File)}
+     */
+    public static File createTemporaryFile(String prefix, String suffix) {
+        try {
+            return File.createTempFile(prefix, suffix);
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    /**
+     * Deletes the given temporary file, if it still exists
+     */
+    public static void deleteTemporaryFile(File tempFile) {
+        if (!tempFile.delete() && tempFile.exists()) {
+            LOGGER.warn("Could not delete temporary file: {}", tempFile);
+        }
+    }
+
     /**
      * Returns a file object for the given path, expanding "~" to the home directory
      */
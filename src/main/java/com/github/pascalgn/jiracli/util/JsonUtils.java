@@ -15,11 +15,13 @@
  */
 package com.github.pascalgn.jiracli.util;
 
+import java.io.Reader;
 import java.util.regex.Pattern;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 public class JsonUtils {
     private static final Pattern JSON_OBJECT = Pattern.compile("^\\s*\\{");
@@ -46,4 +48,62 @@ public class JsonUtils {
         }
         return null;
     }
+
+    /**
+     * Parses the JSON object from the given reader, but passes the elements of the given array field to the consumer
+     * as soon as they have been read, instead of adding them to the result.
+     *
+     * @return The parsed object, without the array field
+     */
+    public static JSONObject parseObject(Reader reader, String arrayField, Consumer<JSONObject> consumer) {
+        JSONTokener tokener = new JSONTokener(reader);
+        if (tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+        JSONObject result = new JSONObject();
+        if (tokener.nextClean() == '}') {
+            return result;
+        }
+        tokener.back();
+        while (true) {
+            String key = tokener.nextValue().toString();
+            if (tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+            if (key.equals(arrayField)) {
+                parseArray(tokener, consumer);
+            } else {
+                result.put(key, tokener.nextValue());
+            }
+            char c = tokener.nextClean();
+            if (c == '}') {
+                return result;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    private static void parseArray(JSONTokener tokener, Consumer<JSONObject> consumer) {
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("A JSONArray text must start with '['");
+        }
+        if (tokener.nextClean() == ']') {
+            return;
+        }
+        tokener.back();
+        while (true) {
+            Object value = tokener.nextValue();
+            if (!(value instanceof JSONObject)) {
+                throw tokener.syntaxError("Expected a JSONObject: " + value);
+            }
+            consumer.accept((JSONObject) value);
+            char c = tokener.nextClean();
+            if (c == ']') {
+                return;
+            } else if (c != ',') {
+                throw tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a fixed number of daemon threads, while the results are taken in the order in which the tasks have
+ * been submitted. Tasks should only be submitted and taken by a single thread, the executor can be shut down from any
+ * thread. Threads that have been idle for a few seconds are stopped, so executors that are not used anymore don't need
+ * to be shut down explicitly.
+ *
+ * @param <T> The items the tasks belong to, which are returned with the results
+ * @param <R> The results of the tasks
+ */
+public final class OrderedExecutor<T, R> {
+    private static final long KEEP_ALIVE_SECONDS = 5;
+
+    private final String name;
+    private final int threads;
+    private final int capacity;
+
+    private final Deque<Pending<T, R>> pending;
+
+    private ExecutorService executor;
+
+    /**
+     * @param name Used as prefix for the thread names
+     * @param capacity Maximum number of pending tasks, see {@link #isFull()}
+     */
+    public OrderedExecutor(String name, int threads, int capacity) {
+        this.name = name;
+        this.threads = Math.max(1, threads);
+        this.capacity = Math.max(1, capacity);
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * @return <code>true</code> if the oldest result should be taken before submitting more tasks
+     */
+    public boolean isFull() {
+        return pending.size() >= capacity;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public void submit(T item, Callable<R> task) {
+        pending.add(new Pending<>(item, getExecutor().submit(task)));
+    }
+
+    /**
+     * Waits for the oldest pending task. Errors thrown by the task are rethrown, exceptions are returned with the
+     * result, so the caller can decide whether to report or rethrow them.
+     *
+     * @return The result of the oldest task or <code>null</code> if no tasks are pending
+     */
+    public Result<T, R> take() {
+        Pending<T, R> next = pending.poll();
+        if (next == null) {
+            return null;
+        }
+        try {
+            return new Result<>(next.item, next.future.get(), null);
+        } catch (InterruptedException e) {
+            shutdown();
+            throw new InterruptedError(e);
+        } catch (ExecutionException e) {
+            Throwable cause = (e.getCause() == null ? e : e.getCause());
+            if (cause instanceof Error) {
+                shutdown();
+                throw (Error) cause;
+            }
+            Exception error = (cause instanceof Exception ? (Exception) cause : new IllegalStateException(cause));
+            return new Result<>(next.item, null, error);
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            ThreadPoolExecutor e = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger index = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            e.allowCoreThreadTimeOut(true);
+            executor = e;
+        }
+        return executor;
+    }
+
+    /**
+     * Interrupts the running tasks, the executor will be recreated when more tasks are submitted
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static final class Pending<T, R> {
+        private final T item;
+        private final Future<R> future;
+
+        public Pending(T item, Future<R> future) {
+            this.item = item;
+            this.future = future;
+        }
+    }
+
+    public static final class Result<T, R> {
+        private final T item;
+        private final R result;
+        private final Exception error;
+
+        private Result(T item, R result, Exception error) {
+            this.item = item;
+            this.result = result;
+            this.error = error;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return The exception thrown by the task or <code>null</code> if it completed normally
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        /**
+         * @return The result of the task, exceptions thrown by the task will be rethrown
+         */
+        public R get() {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error != null) {
+                throw new IllegalStateException(error);
+            }
+            return result;
+        }
+    }
+}
@@ -15,75 +15,688 @@
  */
 package com.github.pascalgn.jiracli.web;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import com.github.pascalgn.jiracli.Constants;
 import com.github.pascalgn.jiracli.context.WebService.Cache;
+import com.github.pascalgn.jiracli.model.Transition;
 import com.github.pascalgn.jiracli.model.Workflow;
+import com.github.pascalgn.jiracli.web.DiskCache.ResourceClass;
 
+/**
+ * All entries share a single memory budget. When the estimated size of the entries exceeds the budget, the least
+ * recently used entries will be evicted.
+ */
 class CacheImpl implements Cache {
-    private final Map<String, String> responseCache;
-    private final Map<String, JSONObject> issueListCache;
-    private final Map<String, JSONObject> fieldCache;
-    private final Map<String, Workflow> workflowCache;
-    private Map<String, FieldInfo> fieldInfoCache;
+    private static final long MB = 1024 * 1024;
+
+    private static final String ISSUE_PATH = "/issue/";
+    private static final String SEARCH_PATH = "/search?";
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("[A-Z][A-Z0-9_]*-[0-9]+");
+
+    /**
+     * Default budget in megabytes, can be overridden with <code>-Djiracli.cacheSize=256</code>
+     */
+    private static final long DEFAULT_MAX_SIZE = Constants.getInteger("cacheSize",
+            (int) (Runtime.getRuntime().maxMemory() / 4 / MB)) * MB;
+
+    private enum Type {
+        RESPONSE, ISSUES, FIELDS, WORKFLOW_NAME, WORKFLOW, EDIT_META;
+    }
+
+    private final Map<Key, Entry> entries;
+    private final long maxSize;
+
+    /**
+     * The entries containing each issue, so writes only need to look at the entries they affect
+     */
+    private final Map<String, Set<Key>> issueIndex;
+    private long size;
+
+    private final Map<Type, long[]> statistics;
+
+    private FieldIndex fieldIndex;
+
+    private final DiskCache diskCache;
+
+    /**
+     * Incremented before and after entries are invalidated in the disk cache, so entries that have been read from the
+     * disk concurrently are not added to the memory cache anymore
+     */
+    private long invalidations;
 
     public CacheImpl() {
-        this.responseCache = new HashMap<>();
-        this.issueListCache = new HashMap<>();
-        this.fieldCache = new HashMap<>();
-        this.workflowCache = new HashMap<>();
-        this.fieldInfoCache = null;
+        this(null);
+    }
+
+    /**
+     * @param diskCache Responses will additionally be stored in this cache, may be <code>null</code>
+     */
+    public CacheImpl(DiskCache diskCache) {
+        this(diskCache, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum estimated size of all entries, in bytes
+     */
+    CacheImpl(DiskCache diskCache, long maxSize) {
+        this.diskCache = diskCache;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.issueIndex = new HashMap<>();
+        this.statistics = new EnumMap<>(Type.class);
+        for (Type type : Type.values()) {
+            // hits, misses, evictions
+            statistics.put(type, new long[3]);
+        }
+        this.fieldIndex = null;
     }
 
     public String getResponse(String path) {
-        return responseCache.get(path);
+        long generation;
+        synchronized (this) {
+            String response = (String) get(Type.RESPONSE, path);
+            if (response != null || diskCache == null) {
+                return response;
+            }
+            generation = invalidations;
+        }
+        // the disk cache is safe to use concurrently, other threads should not wait for it
+        String response = diskCache.get(path);
+        if (response != null) {
+            synchronized (this) {
+                if (generation == invalidations) {
+                    put(Type.RESPONSE, path, response, estimateSize(response));
+                }
+            }
+        }
+        return response;
     }
 
     public void putResponse(String path, String response) {
-        responseCache.put(path, response);
+        synchronized (this) {
+            put(Type.RESPONSE, path, response, estimateSize(response));
+        }
+        if (diskCache != null) {
+            diskCache.put(path, response);
+        }
+    }
+
+    public synchronized JSONObject getIssues(String path) {
+        return (JSONObject) get(Type.ISSUES, path);
+    }
+
+    public synchronized void putIssues(String path, JSONObject issues) {
+        put(Type.ISSUES, path, issues, estimateSize(issues));
+    }
+
+    /**
+     * Should be called when properties have been added to the given cached result list
+     *
+     * @param addedSize The estimated size of the added properties, see {@link #estimateSize(String, Object)}
+     */
+    public synchronized void updateIssues(String path, JSONObject issues, long addedSize) {
+        update(Type.ISSUES, path, issues, addedSize);
+    }
+
+    public synchronized JSONObject getFields(String key) {
+        return (JSONObject) get(Type.FIELDS, key);
+    }
+
+    public synchronized void putFields(String key, JSONObject fields) {
+        put(Type.FIELDS, key, fields, estimateSize(fields));
+    }
+
+    /**
+     * Should be called when fields have been added to the given cached fields
+     *
+     * @param addedSize The estimated size of the added fields, see {@link #estimateSize(String, Object)}
+     */
+    public synchronized void updateFields(String key, JSONObject fields, long addedSize) {
+        update(Type.FIELDS, key, fields, addedSize);
+    }
+
+    /**
+     * @return The time when the fields of the given issue have been fetched or last been validated, or
+     *         <code>-1</code> if they are not cached
+     */
+    public synchronized long getFieldsValidated(String key) {
+        Entry entry = entries.get(new Key(Type.FIELDS, key));
+        return (entry == null ? -1 : entry.validated);
+    }
+
+    /**
+     * Notes that the cached fields of the given issues were still valid at the given time
+     */
+    public synchronized void setFieldsValidated(Collection<String> keys, long time) {
+        for (String key : keys) {
+            Entry entry = entries.get(new Key(Type.FIELDS, key));
+            if (entry != null) {
+                entry.validated = time;
+            }
+        }
+    }
+
+    /**
+     * @param scheme Project and issue type, which together determine the workflow
+     */
+    public synchronized String getWorkflowName(String scheme) {
+        return (String) get(Type.WORKFLOW_NAME, scheme);
+    }
+
+    public synchronized void putWorkflowName(String scheme, String workflowName) {
+        put(Type.WORKFLOW_NAME, scheme, workflowName, estimateSize(workflowName));
+    }
+
+    public synchronized Workflow getWorkflow(String workflowName) {
+        return (Workflow) get(Type.WORKFLOW, workflowName);
+    }
+
+    public synchronized void putWorkflow(String workflowName, Workflow workflow) {
+        put(Type.WORKFLOW, workflowName, workflow, estimateSize(workflow));
+    }
+
+    /**
+     * @param scheme Project, issue type and status, which together determine the editable fields
+     */
+    public synchronized JSONObject getEditMeta(String scheme) {
+        return (JSONObject) get(Type.EDIT_META, scheme);
+    }
+
+    public synchronized void putEditMeta(String scheme, JSONObject editMeta) {
+        put(Type.EDIT_META, scheme, editMeta, estimateSize(editMeta));
+    }
+
+    public synchronized FieldIndex getFieldIndex() {
+        return fieldIndex;
     }
 
-    public JSONObject getIssues(String path) {
-        return issueListCache.get(path);
+    public synchronized void setFieldIndex(FieldIndex fieldIndex) {
+        this.fieldIndex = fieldIndex;
     }
 
-    public void putIssues(String path, JSONObject issues) {
-        issueListCache.put(path, issues);
+    /**
+     * Removes the cached fields of the given issues, all cached responses and result lists containing them.
+     * Schema and workflows are kept.
+     */
+    public void invalidateIssues(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            invalidations++;
+            for (Key key : getIndexed(keys)) {
+                remove(key);
+            }
+        }
+        invalidateDisk();
     }
 
-    public JSONObject getFields(String key) {
-        return fieldCache.get(key);
+    /**
+     * Removes the given field from the cached fields of the given issues and from the result lists containing them.
+     * Cached responses are only removed when they contain the field and one of the issues. The cached objects are
+     * replaced by modified copies, because they might still be in use.
+     */
+    public void invalidateField(Collection<String> keys, String field) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            invalidations++;
+            for (Key key : getIndexed(keys)) {
+                Entry entry = entries.get(key);
+                if (key.type == Type.FIELDS) {
+                    JSONObject fields = (JSONObject) entry.value;
+                    if (fields.has(field)) {
+                        entry.value = copy(fields, field);
+                    }
+                } else if (key.type == Type.ISSUES) {
+                    // the estimated size of the entry will be slightly too large now, which does no harm
+                    entry.value = removeField(entry.value, keys, field);
+                } else if (key.type == Type.RESPONSE && ((String) entry.value).contains("\"" + field + "\"")) {
+                    remove(key);
+                }
+            }
+        }
+        invalidateDisk();
     }
 
-    public void putFields(String key, JSONObject fields) {
-        fieldCache.put(key, fields);
+    /**
+     * Removes all cached result lists and search responses, but keeps the cached fields of the issues
+     */
+    public void invalidateIssueLists() {
+        synchronized (this) {
+            invalidations++;
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> entry = it.next();
+                Key key = entry.getKey();
+                if (key.type == Type.ISSUES || (key.type == Type.RESPONSE && isSearchPath(key.key))) {
+                    it.remove();
+                    removed(key, entry.getValue());
+                }
+            }
+        }
+        invalidateDisk();
     }
 
-    public Workflow getWorkflow(String key) {
-        return workflowCache.get(key);
+    /**
+     * Expires the responses of issues in the disk cache. Finding the affected entries would mean reading all files,
+     * so all of them are expired.
+     */
+    private void invalidateDisk() {
+        if (diskCache != null) {
+            diskCache.invalidate(ResourceClass.ISSUES);
+            synchronized (this) {
+                invalidations++;
+            }
+        }
     }
 
-    public void putWorkflow(String key, Workflow workflow) {
-        workflowCache.put(key, workflow);
+    /**
+     * @return The keys of the entries containing any of the given issues
+     */
+    private List<Key> getIndexed(Collection<String> keys) {
+        Set<Key> result = new LinkedHashSet<>();
+        for (String key : keys) {
+            Set<Key> indexed = issueIndex.get(key);
+            if (indexed != null) {
+                result.addAll(indexed);
+            }
+        }
+        return new ArrayList<>(result);
     }
 
-    public Map<String, FieldInfo> getFieldInfos() {
-        return fieldInfoCache;
+    /**
+     * @return The issues contained in the given entry, in the same way as they are found when invalidating them
+     */
+    private static Collection<String> findIssues(Type type, String key, Object value) {
+        if (type == Type.FIELDS) {
+            return Collections.singleton(key);
+        } else if (type == Type.RESPONSE || type == Type.ISSUES) {
+            Set<String> issues = new HashSet<>();
+            String issue = getIssue(key);
+            if (issue != null) {
+                issues.add(issue);
+            }
+            if (value instanceof String) {
+                // search responses like the ones of batched field loads may contain the issues, too
+                addMentionedIssues((String) value, issues);
+            } else {
+                addContainedIssues(value, issues);
+            }
+            return issues;
+        } else {
+            return Collections.emptySet();
+        }
     }
 
-    public void setFieldInfos(Map<String, FieldInfo> fieldInfos) {
-        this.fieldInfoCache = fieldInfos;
+    /**
+     * @return The issue key of paths like <code>/rest/api/latest/issue/JRA-123/editmeta</code> or <code>null</code>
+     */
+    private static String getIssue(String path) {
+        int index = path.indexOf(ISSUE_PATH);
+        if (index == -1) {
+            return null;
+        }
+        int start = index + ISSUE_PATH.length();
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        return path.substring(start, end);
+    }
+
+    /**
+     * Adds all JSON strings of the given response that look like issue keys. This is cheaper than parsing the
+     * response and might only find a few more issues than necessary.
+     */
+    private static void addMentionedIssues(String response, Set<String> issues) {
+        Matcher matcher = ISSUE_KEY.matcher(response);
+        int start = response.indexOf('"');
+        while (start != -1) {
+            int end = start + 1;
+            while (end < response.length() && response.charAt(end) != '"') {
+                end += (response.charAt(end) == '\\' ? 2 : 1);
+            }
+            if (end >= response.length()) {
+                break;
+            }
+            if (matcher.region(start + 1, end).matches()) {
+                issues.add(response.substring(start + 1, end));
+            }
+            start = response.indexOf('"', end + 1);
+        }
+    }
+
+    private static void addContainedIssues(Object value, Set<String> issues) {
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            Object key = json.opt("key");
+            if (key instanceof String) {
+                issues.add((String) key);
+            }
+            for (String name : json.keySet()) {
+                Object obj = json.opt(name);
+                if (obj instanceof JSONArray) {
+                    addContainedIssues(obj, issues);
+                }
+            }
+        } else if (value instanceof JSONArray) {
+            for (Object item : (JSONArray) value) {
+                if (item instanceof JSONObject) {
+                    Object key = ((JSONObject) item).opt("key");
+                    if (key instanceof String) {
+                        issues.add((String) key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isSearchPath(String path) {
+        return path.contains(SEARCH_PATH);
+    }
+
+    /**
+     * @return A copy of the given value without the field of the given issues, or the value itself, when it does
+     *         not contain the field of any of the issues
+     */
+    private static Object removeField(Object value, Collection<String> keys, String field) {
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            JSONObject result = json;
+            Object key = json.opt("key");
+            JSONObject fields = json.optJSONObject("fields");
+            if (key instanceof String && keys.contains(key) && fields != null && fields.has(field)) {
+                result = copy(json, null);
+                result.put("fields", copy(fields, field));
+            }
+            for (String name : json.keySet()) {
+                Object obj = json.opt(name);
+                if (obj instanceof JSONArray) {
+                    Object updated = removeField(obj, keys, field);
+                    if (updated != obj) {
+                        if (result == json) {
+                            result = copy(json, null);
+                        }
+                        result.put(name, updated);
+                    }
+                }
+            }
+            return result;
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray result = array;
+            for (int i = 0; i < array.length(); i++) {
+                Object item = array.opt(i);
+                Object updated = removeField(item, keys, field);
+                if (updated != item) {
+                    if (result == array) {
+                        result = new JSONArray();
+                        for (int j = 0; j < array.length(); j++) {
+                            result.put(array.opt(j));
+                        }
+                    }
+                    result.put(i, updated);
+                }
+            }
+            return result;
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * @param exclude Name of a property that will not be copied, may be <code>null</code>
+     * @return A shallow copy of the given object
+     */
+    private static JSONObject copy(JSONObject json, String exclude) {
+        JSONObject copy = new JSONObject();
+        for (String name : json.keySet()) {
+            if (!name.equals(exclude)) {
+                copy.put(name, json.opt(name));
+            }
+        }
+        return copy;
+    }
+
+    private Object get(Type type, String key) {
+        Entry entry = entries.get(new Key(type, key));
+        long[] s = statistics.get(type);
+        if (entry == null) {
+            s[1]++;
+            return null;
+        } else {
+            s[0]++;
+            return entry.value;
+        }
+    }
+
+    private void put(Type type, String key, Object value, long entrySize) {
+        Key k = new Key(type, key);
+        Entry entry = new Entry(value, entrySize, findIssues(type, key, value));
+        Entry previous = entries.put(k, entry);
+        if (previous != null) {
+            removed(k, previous);
+            if (previous.value == value) {
+                // the same object has been modified, existing values have not been updated
+                entry.validated = previous.validated;
+            }
+        }
+        for (String issue : entry.issues) {
+            Set<Key> indexed = issueIndex.get(issue);
+            if (indexed == null) {
+                indexed = new HashSet<>();
+                issueIndex.put(issue, indexed);
+            }
+            indexed.add(k);
+        }
+        size += entrySize;
+        evict();
+    }
+
+    private void update(Type type, String key, Object value, long addedSize) {
+        Key k = new Key(type, key);
+        Entry previous = entries.get(k);
+        if (previous == null || previous.value != value) {
+            // the entry has been evicted or replaced in the meantime
+            put(type, key, value, estimateSize(value));
+        } else {
+            // existing values have not been updated, so the entry is still as valid as before
+            entries.put(k, new Entry(value, previous.size + addedSize, previous.validated, previous.issues));
+            size += addedSize;
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        // always keep the most recently added entry, even if it exceeds the budget on its own
+        while (size > maxSize && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            it.remove();
+            removed(eldest.getKey(), eldest.getValue());
+            statistics.get(eldest.getKey().type)[2]++;
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            removed(key, entry);
+        }
+    }
+
+    /**
+     * Updates the size and the index after the given entry has been removed
+     */
+    private void removed(Key key, Entry entry) {
+        size -= entry.size;
+        for (String issue : entry.issues) {
+            Set<Key> indexed = issueIndex.get(issue);
+            if (indexed != null && indexed.remove(key) && indexed.isEmpty()) {
+                issueIndex.remove(issue);
+            }
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the given object, in bytes
+     */
+    static long estimateSize(Object obj) {
+        if (obj instanceof String) {
+            return 40 + 2 * ((String) obj).length();
+        } else if (obj instanceof JSONObject) {
+            JSONObject json = (JSONObject) obj;
+            long result = 64;
+            for (String key : json.keySet()) {
+                result += estimateSize(key, json.opt(key));
+            }
+            return result;
+        } else if (obj instanceof JSONArray) {
+            long result = 32;
+            for (Object item : (JSONArray) obj) {
+                result += 8 + estimateSize(item);
+            }
+            return result;
+        } else if (obj instanceof Workflow) {
+            long result = 64;
+            for (Transition transition : ((Workflow) obj).getTransitions()) {
+                result += 200 + estimateSize(transition.getName());
+            }
+            return result;
+        } else {
+            return 16;
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the given property of a JSON object, in bytes
+     */
+    static long estimateSize(String name, Object value) {
+        return 32 + estimateSize(name) + estimateSize(value);
     }
 
     @Override
     public void clear() {
-        responseCache.clear();
-        issueListCache.clear();
-        fieldCache.clear();
-        workflowCache.clear();
-        fieldInfoCache = null;
+        clearMemory();
+        if (diskCache != null) {
+            diskCache.invalidate();
+            synchronized (this) {
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * Only clears the entries kept in memory, persistent entries stay valid
+     */
+    public synchronized void clearMemory() {
+        invalidations++;
+        entries.clear();
+        issueIndex.clear();
+        size = 0;
+        fieldIndex = null;
+    }
+
+    @Override
+    public List<String> getInfo() {
+        List<String> info = new ArrayList<>();
+        synchronized (this) {
+            Map<Type, long[]> counts = new EnumMap<>(Type.class);
+            for (Type type : Type.values()) {
+                counts.put(type, new long[2]);
+            }
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                long[] c = counts.get(entry.getKey().type);
+                c[0]++;
+                c[1] += entry.getValue().size;
+            }
+            info.add("Memory cache: " + size / 1024 + " of " + maxSize / 1024 + " KB used");
+            for (Type type : Type.values()) {
+                long[] c = counts.get(type);
+                long[] s = statistics.get(type);
+                info.add("  " + type.name().toLowerCase() + ": " + c[0] + " entries, " + c[1] + " bytes, "
+                        + s[0] + " hits, " + s[1] + " misses, " + s[2] + " evictions");
+            }
+        }
+        if (diskCache != null) {
+            info.addAll(diskCache.getInfo());
+        }
+        return info;
+    }
+
+    @Override
+    public int prune() {
+        return (diskCache == null ? 0 : diskCache.prune());
+    }
+
+    private static final class Key {
+        private final Type type;
+        private final String key;
+
+        public Key(Type type, String key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type == other.type && Objects.equals(key, other.key);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final Collection<String> issues;
+
+        /**
+         * Replaced by a modified copy when a field of the contained issues is invalidated
+         */
+        private Object value;
+
+        private long validated;
+
+        public Entry(Object value, long size, Collection<String> issues) {
+            this(value, size, System.currentTimeMillis(), issues);
+        }
+
+        public Entry(Object value, long size, long validated, Collection<String> issues) {
+            this.value = value;
+            this.size = size;
+            this.validated = validated;
+            this.issues = issues;
+        }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the changelogs of issues in batches: when the changelog of an issue is requested, the changelogs of the
+ * issues received after it will be requested with the same search. The results are read page by page, only as far
+ * as needed for the requested changelog.
+ */
+abstract class ChangelogLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangelogLoader.class);
+
+    private final ReceivedKeys receivedKeys;
+    private final int batchSize;
+
+    private final Map<String, JSONObject> received;
+
+    private Set<String> batch;
+    private PagedList<JSONObject> list;
+    private Iterator<JSONObject> results;
+
+    /**
+     * @param batchSize Maximum number of issues for which the changelog will be requested at once
+     */
+    public ChangelogLoader(ReceivedKeys receivedKeys, int batchSize) {
+        this.receivedKeys = receivedKeys;
+        this.batchSize = batchSize;
+        this.received = new HashMap<>();
+    }
+
+    /**
+     * @return The issue, including its changelog, or <code>null</code> if it could not be loaded with a search
+     */
+    public synchronized JSONObject load(String key) {
+        JSONObject json = received.remove(key);
+        if (json != null) {
+            return json;
+        }
+        try {
+            if (batch == null || !batch.contains(key)) {
+                if (list != null) {
+                    // the remaining pages of the previous batch are not needed anymore
+                    list.cancel();
+                    list = null;
+                }
+                batch = new LinkedHashSet<>();
+                batch.add(key);
+                batch.addAll(receivedKeys.getFollowing(key, batchSize - 1));
+                received.clear();
+                list = search(batch);
+                results = list.iterator();
+            }
+            while (results.hasNext()) {
+                JSONObject next = results.next();
+                String k = next.getString("key");
+                if (k.equals(key)) {
+                    return next;
+                }
+                received.put(k, next);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not search changelogs: {}", batch, e);
+            batch = null;
+            list = null;
+            results = null;
+        }
+        return null;
+    }
+
+    /**
+     * @return The issues with the given keys, each including its changelog
+     */
+    protected abstract PagedList<JSONObject> search(Collection<String> keys);
+}
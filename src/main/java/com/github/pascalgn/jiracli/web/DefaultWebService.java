@@ -16,15 +16,17 @@
 package com.github.pascalgn.jiracli.web;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
-import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -34,11 +36,18 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -46,6 +55,7 @@ import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.pascalgn.jiracli.Constants;
 import com.github.pascalgn.jiracli.context.Console;
 import com.github.pascalgn.jiracli.context.DefaultRequest;
 import com.github.pascalgn.jiracli.context.WebService;
@@ -73,9 +83,12 @@ import com.github.pascalgn.jiracli.util.Consumer;
 import com.github.pascalgn.jiracli.util.ConversionUtils;
 import com.github.pascalgn.jiracli.util.Function;
 import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.IOUtils;
+import com.github.pascalgn.jiracli.util.JsonUtils;
 import com.github.pascalgn.jiracli.util.LoadingList;
 import com.github.pascalgn.jiracli.util.StringUtils;
 import com.github.pascalgn.jiracli.util.Supplier;
+import com.github.pascalgn.jiracli.web.HttpClient.BadRequestException;
 import com.github.pascalgn.jiracli.web.HttpClient.NotAuthenticatedException;
 
 public class DefaultWebService implements WebService {
@@ -84,6 +97,47 @@ public class DefaultWebService implements WebService {
     private static final Request DEFAULT_REQUEST = new DefaultRequest("issuetype", "status", "summary");
     private static final Request ALL_FIELDS = new DefaultRequest(true);
 
+    /**
+     * Maximum number of pages or searches that will be fetched in the background while iterating over the results
+     */
+    private static final int READ_AHEAD = 4;
+
+    /**
+     * Issues of streamed search results are always cached individually, but only with this setting, the complete
+     * result pages will be kept as well
+     */
+    private static final boolean CACHE_SEARCH_RESULTS = Constants.getBoolean("cacheSearchResults");
+
+    /**
+     * When set to a value of zero or more, cached issues older than this number of seconds will be checked for updates
+     * before they are used
+     */
+    private static final int REVALIDATE_AFTER = Constants.getInteger("revalidateAfter", -1);
+
+    /**
+     * Maximum number of keys in a single <code>key IN (...)</code> search, so the result fits into one page
+     */
+    private static final int KEYS_PER_SEARCH = 50;
+
+    /**
+     * Maximum length of the URL-encoded key list of a single search, to keep the request URL well below the limits of
+     * common servers and proxies
+     */
+    private static final int MAX_KEYS_LENGTH = 2000;
+
+    private static final String SEARCH_PATH = "/rest/api/latest/search";
+
+    /**
+     * Number of issues requested per search page. The server may return fewer issues per page, in that case the size
+     * of the first page will be used for the following pages.
+     */
+    private static final int MAX_RESULTS = Constants.getInteger("maxResults", 100);
+
+    /**
+     * Searches with longer URLs, because of long JQL or many fields, will be sent as POST requests
+     */
+    private static final int MAX_URL_LENGTH = 4000;
+
     private static final Function<Reader, JSONObject> TO_OBJECT = new Function<Reader, JSONObject>() {
         @Override
         public JSONObject apply(Reader reader, Set<Hint> hints) {
@@ -91,6 +145,33 @@ public class DefaultWebService implements WebService {
         }
     };
 
+    private static final Request CHANGELOG_REQUEST = new DefaultRequest("creator", "created");
+
+    private static final Function<JSONObject, Change> TO_CHANGE = new Function<JSONObject, Change>() {
+        @Override
+        public Change apply(JSONObject history, Set<Hint> hints) {
+            int id = history.getInt("id");
+            User user = ConversionUtils.toUser(history.getJSONObject("author"));
+            Date date = ConversionUtils.parseDate(history.getString("created"));
+            List<Item> items = new ArrayList<>();
+            for (Object item : history.getJSONArray("items")) {
+                JSONObject itemJson = (JSONObject) item;
+                String field = itemJson.getString("field");
+                String from = DefaultWebService.toString(itemJson.get("fromString"));
+                String to = DefaultWebService.toString(itemJson.get("toString"));
+                items.add(new Item(field, from, to));
+            }
+            return new Change(id, user, date, items);
+        }
+    };
+
+    private static final Function<Reader, String> TO_STRING = new Function<Reader, String>() {
+        @Override
+        public String apply(Reader reader, Set<Hint> hints) {
+            return IOUtils.toString(reader);
+        }
+    };
+
     private static final Function<Reader, JSONArray> TO_ARRAY = new Function<Reader, JSONArray>() {
         @Override
         public JSONArray apply(Reader reader, Set<Hint> hints) {
@@ -101,11 +182,66 @@ public class DefaultWebService implements WebService {
     private final HttpClient httpClient;
     private final CacheImpl cache;
     private final Schema schema;
+    private final ReceivedKeys receivedKeys;
+    private final FieldLoader fieldLoader;
+    private final ChangelogLoader changelogLoader;
+    private final ExecutorService executor;
+
+    private int revalidateAfter;
 
     public DefaultWebService(Console console) {
-        this.httpClient = new HttpClient(console);
-        this.cache = new CacheImpl();
+        this(console, null);
+    }
+
+    /**
+     * @param cacheDirectory Directory used to persist cached responses, may be <code>null</code>
+     */
+    public DefaultWebService(Console console, File cacheDirectory) {
+        this(new HttpClient(console), cacheDirectory);
+    }
+
+    DefaultWebService(final HttpClient httpClient, File cacheDirectory) {
+        this.httpClient = httpClient;
+        this.cache = new CacheImpl(cacheDirectory == null ? null : new DiskCache(cacheDirectory,
+                new Supplier<String>() {
+                    @Override
+                    public String get(Set<Hint> hints) {
+                        return httpClient.getBaseUrl();
+                    }
+                }));
         this.schema = new CachedSchema();
+        this.receivedKeys = new ReceivedKeys();
+        this.fieldLoader = new FieldLoader(schema, cache, receivedKeys, KEYS_PER_SEARCH) {
+            @Override
+            protected Map<String, JSONObject> fetchFields(Collection<String> keys, String field) {
+                return loadFields(keys, field);
+            }
+        };
+        this.changelogLoader = new ChangelogLoader(receivedKeys, KEYS_PER_SEARCH) {
+            @Override
+            protected PagedList<JSONObject> search(Collection<String> keys) {
+                return searchChangelogs(keys);
+            }
+        };
+        this.executor = Executors.newFixedThreadPool(READ_AHEAD, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                thread.setName("Fetch-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.revalidateAfter = REVALIDATE_AFTER;
+    }
+
+    /**
+     * @param revalidateAfter Overrides the <code>revalidateAfter</code> setting, in seconds
+     */
+    void setRevalidateAfter(int revalidateAfter) {
+        this.revalidateAfter = revalidateAfter;
     }
 
     @Override
@@ -133,6 +269,11 @@ public class DefaultWebService implements WebService {
         httpClient.get(uri, consumer);
     }
 
+    @Override
+    public void download(URI uri, long offset, Consumer<InputStream> consumer) {
+        httpClient.get(uri, offset, consumer);
+    }
+
     @Override
     public Schema getSchema() {
         return schema;
@@ -149,6 +290,13 @@ public class DefaultWebService implements WebService {
                 fieldMap.addField(field);
             }
         }
+        fieldMap.setFieldLoader(new Function<String, Field>() {
+            @Override
+            public Field apply(String idOrName, Set<Hint> hints) {
+                return fieldLoader.load(issue, idOrName);
+            }
+        });
+        receivedKeys.add(key);
         fieldMap.setSupplier(new Supplier<List<Field>>() {
             @Override
             public List<Field> get(Set<Hint> hints) {
@@ -165,24 +313,55 @@ public class DefaultWebService implements WebService {
         return issue;
     }
 
+    /**
+     * Loads only the given field of the given issues, with a single search
+     */
+    private Map<String, JSONObject> loadFields(Collection<String> keys, String field) {
+        String jql = "key IN (" + StringUtils.join(keys, ",") + ")";
+        String path = SEARCH_PATH + "?jql=" + urlEncode(jql) + "&maxResults=" + keys.size();
+        JSONObject response = get(path, "issues", new DefaultRequest(field));
+        Map<String, JSONObject> result = new HashMap<>();
+        for (Object obj : response.getJSONArray("issues")) {
+            JSONObject json = (JSONObject) obj;
+            String key = json.getString("key");
+            JSONObject fields = json.getJSONObject("fields");
+            cacheFields(key, fields);
+            result.put(key, fields);
+        }
+        return result;
+    }
+
     private Function<JSONObject, Issue> toIssue() {
         return new Function<JSONObject, Issue>() {
             @Override
             public Issue apply(JSONObject obj, Set<Hint> hints) {
                 String key = obj.getString("key");
                 JSONObject fields = obj.optJSONObject("fields");
+                JSONObject editMeta = obj.optJSONObject("editmeta");
+                if (fields != null && editMeta != null) {
+                    // requested with expand=editmeta, issues with the same screen can reuse it
+                    String scheme = getEditMetaScheme(key, fields.opt("issuetype"), fields.opt("status"));
+                    if (scheme != null) {
+                        cache.putEditMeta(scheme, editMeta);
+                    }
+                }
                 return toIssue(key, fields);
             }
         };
     }
 
     private void cacheFields(String key, JSONObject fields) {
-        JSONObject cached = cache.getFields(key);
-        if (cached == null) {
-            // at least note that it is a valid issue!
-            cache.putFields(key, (fields == null ? new JSONObject() : fields));
-        } else if (fields != null) {
-            mergeEntries(fields, cached);
+        synchronized (cache) {
+            JSONObject cached = cache.getFields(key);
+            if (cached == null) {
+                // at least note that it is a valid issue!
+                cache.putFields(key, (fields == null ? new JSONObject() : fields));
+            } else if (fields != null) {
+                long addedSize = mergeEntries(fields, cached);
+                if (addedSize > 0) {
+                    cache.updateFields(key, cached, addedSize);
+                }
+            }
         }
     }
 
@@ -239,6 +418,9 @@ public class DefaultWebService implements WebService {
     @Override
     public List<Issue> getIssues(List<String> keys, Request request) {
         Collection<String> fields = request.getFields();
+        if (revalidateAfter >= 0) {
+            revalidate(keys);
+        }
         if (keys.isEmpty()) {
             return Collections.emptyList();
         } else if (keys.size() == 1) {
@@ -284,41 +466,179 @@ public class DefaultWebService implements WebService {
                 return new ArrayList<>(resolved.values());
             }
 
-            List<Issue> result = new ArrayList<>();
-
             // key order doesn't matter when searching but improves caching:
-            List<Issue> searchResults = loadIssues(new TreeSet<>(resolve), request);
+            Map<String, Issue> loaded = loadIssues(new TreeSet<>(resolve), request);
 
             // return the search results in the order the keys were given:
-            Set<String> set = new LinkedHashSet<>(keys);
-            for (String key : set) {
+            List<Issue> result = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String key : new LinkedHashSet<>(keys)) {
                 Issue found = resolved.get(key);
                 if (found == null) {
-                    for (Issue issue : searchResults) {
-                        if (issue.getKey().equals(key)) {
-                            found = issue;
-                            break;
-                        }
-                    }
+                    found = loaded.get(key);
                 }
                 if (found == null) {
-                    throw new IllegalArgumentException("Issue not found: " + key);
+                    missing.add(key);
+                } else {
+                    result.add(found);
                 }
-                result.add(found);
+            }
+
+            if (missing.size() == 1) {
+                throw new IllegalArgumentException("Issue not found: " + missing.get(0));
+            } else if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Issues not found: " + StringUtils.join(missing, ", "));
             }
 
             return result;
         }
     }
 
-    private List<Issue> loadIssues(Collection<String> keys, Request request) {
-        if (keys.isEmpty()) {
-            return Collections.emptyList();
-        } else if (keys.size() == 1) {
+    /**
+     * Removes the cached fields of issues which have been updated since they have been fetched
+     */
+    private void revalidate(Collection<String> keys) {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        List<String> stale = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            long validated = cache.getFieldsValidated(key);
+            if (validated != -1 && now - validated > TimeUnit.SECONDS.toMillis(revalidateAfter)) {
+                stale.add(key);
+                oldest = Math.min(oldest, validated);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        // relative dates don't depend on the time zone, add one minute because JQL dates are in minutes
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(now - oldest) + 1;
+
+        Set<String> changed = new HashSet<>();
+        try {
+            for (List<String> chunk : toChunks(stale)) {
+                String jql = "key IN (" + StringUtils.join(chunk, ",") + ") AND updated >= -" + minutes + "m";
+                String path = SEARCH_PATH + "?jql=" + urlEncode(jql) + "&fields=updated&maxResults=" + MAX_RESULTS;
+                List<String> updated = new PaginationList<String>(path, "issues", new Function<JSONObject, String>() {
+                    @Override
+                    public String apply(JSONObject json, Set<Hint> hints) {
+                        return json.getString("key");
+                    }
+                }) {
+                    @Override
+                    protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                        // the result depends on the current time, so it must not be cached
+                        JSONObject object = send(path, TO_OBJECT);
+                        for (Object obj : object.getJSONArray("issues")) {
+                            consumer.accept((JSONObject) obj);
+                        }
+                        return object;
+                    }
+                };
+                changed.addAll(updated);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not revalidate issues, fetching them again: {}", stale, e);
+            changed.addAll(stale);
+        }
+
+        LOGGER.debug("Updated issues: {} of {}", changed.size(), stale.size());
+        cache.invalidateIssues(changed);
+        cache.setFieldsValidated(stale, now);
+    }
+
+    /**
+     * @return The found issues by key, issues which don't exist will be missing from the result
+     */
+    private Map<String, Issue> loadIssues(Collection<String> keys, Request request) {
+        Map<String, Issue> result = new HashMap<>();
+        if (keys.size() == 1) {
             String key = keys.iterator().next();
-            return Collections.singletonList(loadIssue(key));
-        } else {
-            return searchIssues("key IN (" + StringUtils.join(keys, ",") + ")", request);
+            Issue issue = loadIssueIfExists(key);
+            if (issue != null) {
+                result.put(key, issue);
+            }
+        } else if (!keys.isEmpty()) {
+            List<List<String>> chunks = toChunks(keys);
+            // the lists of the current chunk and the following ones, which are fetched while we wait for the first one
+            LinkedList<IssueList> lists = new LinkedList<>();
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    while (lists.size() < READ_AHEAD && i + lists.size() < chunks.size()) {
+                        List<String> chunk = chunks.get(i + lists.size());
+                        IssueList list = createIssueList("key IN (" + StringUtils.join(chunk, ",") + ")", request);
+                        list.prefetch();
+                        lists.add(list);
+                    }
+                    try {
+                        for (Issue issue : lists.getFirst()) {
+                            result.put(issue.getKey(), issue);
+                        }
+                    } catch (BadRequestException e) {
+                        if (!isIssueNotFound(e)) {
+                            throw e;
+                        }
+                        // the whole search fails when one of the keys does not exist, so try them one by one
+                        LOGGER.debug("Could not search issues, loading them individually: {}", chunks.get(i), e);
+                        for (String key : chunks.get(i)) {
+                            Issue issue = loadIssueIfExists(key);
+                            if (issue != null) {
+                                result.put(key, issue);
+                            }
+                        }
+                    }
+                    lists.removeFirst();
+                }
+            } finally {
+                // only left when loading failed or has been interrupted
+                for (IssueList list : lists) {
+                    list.cancel();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if the search failed because it contained the key of an issue that does not exist,
+     *         like <code>An issue with key 'JRA-9' does not exist for field 'key'.</code>
+     */
+    private static boolean isIssueNotFound(BadRequestException e) {
+        String message = e.getMessage();
+        return message != null && message.contains("does not exist");
+    }
+
+    /**
+     * Splits the given keys into chunks that can be used in a single <code>key IN (...)</code> search
+     */
+    private static List<List<String>> toChunks(Collection<String> keys) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int length = 0;
+        for (String key : keys) {
+            // the separating comma will be encoded as %2C
+            int keyLength = urlEncode(key).length() + 3;
+            if (!chunk.isEmpty() && (chunk.size() >= KEYS_PER_SEARCH || length + keyLength > MAX_KEYS_LENGTH)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                length = 0;
+            }
+            chunk.add(key);
+            length += keyLength;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private Issue loadIssueIfExists(String key) {
+        try {
+            return loadIssue(key);
+        } catch (NoSuchElementException e) {
+            LOGGER.trace("Issue not found: {}", key, e);
+            return null;
         }
     }
 
@@ -336,7 +656,14 @@ public class DefaultWebService implements WebService {
 
     @Override
     public Collection<Field> getEditableFields(Issue issue) {
-        JSONObject response = get("/rest/api/latest/issue/" + issue.getKey() + "/editmeta", TO_OBJECT);
+        String scheme = getEditMetaScheme(issue.getKey(), getValue(issue, "issuetype"), getValue(issue, "status"));
+        JSONObject response = (scheme == null ? null : cache.getEditMeta(scheme));
+        if (response == null) {
+            response = get("/rest/api/latest/issue/" + issue.getKey() + "/editmeta", TO_OBJECT);
+            if (scheme != null) {
+                cache.putEditMeta(scheme, response);
+            }
+        }
         JSONObject json = response.getJSONObject("fields");
         List<Field> editableFields = new ArrayList<>();
         for (String id : json.keySet()) {
@@ -364,6 +691,25 @@ public class DefaultWebService implements WebService {
         return editableFields;
     }
 
+    private static Object getValue(Issue issue, String id) {
+        Field field = issue.getFieldMap().getFieldById(id);
+        return (field == null ? null : field.getValue().get());
+    }
+
+    /**
+     * @return Project, issue type and status of the issue, which together determine the editable fields, or
+     *         <code>null</code> if they are not known
+     */
+    private static String getEditMetaScheme(String key, Object issueType, Object status) {
+        if (issueType instanceof JSONObject && ((JSONObject) issueType).has("id") && status instanceof JSONObject
+                && ((JSONObject) status).has("id") && key.contains("-")) {
+            String project = key.substring(0, key.lastIndexOf('-'));
+            return project + "/" + ((JSONObject) issueType).get("id") + "/" + ((JSONObject) status).get("id");
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public List<Issue> getIssues(Issue epic, Request request) {
         return searchIssues("'Epic Link' = " + epic.getKey() + " ORDER BY Rank", request);
@@ -399,8 +745,17 @@ public class DefaultWebService implements WebService {
 
     @Override
     public List<Issue> searchIssues(String jql, Request request) {
-        String path = "/rest/api/latest/search?jql=" + urlEncode(jql.trim());
-        return new IssueList(path, "issues", request);
+        return createIssueList(jql, request);
+    }
+
+    @Override
+    public int countIssues(String jql) {
+        return createIssueList(jql, DEFAULT_REQUEST).count();
+    }
+
+    private IssueList createIssueList(String jql, Request request) {
+        String path = SEARCH_PATH + "?jql=" + urlEncode(jql.trim());
+        return new IssueList(path + "&maxResults=" + MAX_RESULTS, "issues", request, path + "&maxResults=0");
     }
 
     @Override
@@ -419,10 +774,12 @@ public class DefaultWebService implements WebService {
 
     @Override
     public Workflow getWorkflow(final Issue issue) {
-        Workflow workflow = cache.getWorkflow(issue.getKey());
-        if (workflow == null) {
+        // the workflow only depends on the project and the issue type, so it can be shared by many issues
+        String scheme = getWorkflowScheme(issue);
+        String workflowName = cache.getWorkflowName(scheme);
+        if (workflowName == null) {
             // There is no REST API to get the workflow name, so we need to parse the HTML:
-            String workflowName = httpClient.get("/browse/" + issue.getKey(), new Function<Reader, String>() {
+            workflowName = httpClient.get("/browse/" + issue.getKey(), new Function<Reader, String>() {
                 @Override
                 public String apply(Reader reader, Set<Hint> hints) {
                     try (BufferedReader bufferedReader = new BufferedReader(reader)) {
@@ -440,17 +797,36 @@ public class DefaultWebService implements WebService {
                     throw new NotAuthenticatedException(new IllegalStateException(message));
                 }
             });
+            cache.putWorkflowName(scheme, workflowName);
+        }
 
+        Workflow workflow = cache.getWorkflow(workflowName);
+        if (workflow == null) {
             String path = "/rest/workflowDesigner/latest/workflows?name=" + urlEncode(workflowName);
             JSONObject response = get(path, TO_OBJECT);
 
             workflow = WorkflowHelper.parseWorkflow(workflowName, response);
 
-            cache.putWorkflow(issue.getKey(), workflow);
+            cache.putWorkflow(workflowName, workflow);
         }
         return workflow;
     }
 
+    /**
+     * @return The project key and issue type ID of the issue or the issue key, if the issue type is unknown
+     */
+    private static String getWorkflowScheme(Issue issue) {
+        String key = issue.getKey();
+        Field field = issue.getFieldMap().getFieldById("issuetype");
+        Object value = (field == null ? null : field.getValue().get());
+        if (value instanceof JSONObject && ((JSONObject) value).has("id") && key.contains("-")) {
+            String project = key.substring(0, key.lastIndexOf('-'));
+            return project + "/" + ((JSONObject) value).get("id");
+        } else {
+            return key;
+        }
+    }
+
     @Override
     public List<Attachment> getAttachments(Issue issue) {
         Field field = issue.getFieldMap().getFieldById("attachment");
@@ -460,13 +836,7 @@ public class DefaultWebService implements WebService {
                 JSONArray array = (JSONArray) value;
                 List<Attachment> attachments = new ArrayList<>();
                 for (Object obj : array) {
-                    JSONObject json = (JSONObject) obj;
-                    int id = json.getInt("id");
-                    String filename = json.getString("filename");
-                    String mimeType = json.getString("mimeType");
-                    long size = json.getLong("size");
-                    URI content = URI.create(json.getString("content"));
-                    attachments.add(new Attachment(issue, id, filename, mimeType, size, content));
+                    attachments.add(toAttachment(issue, (JSONObject) obj));
                 }
                 return attachments;
             }
@@ -474,6 +844,32 @@ public class DefaultWebService implements WebService {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<Attachment> addAttachments(Issue issue, List<File> files) {
+        String path = "/rest/api/latest/issue/" + issue.getKey() + "/attachments";
+        String response;
+        try {
+            response = httpClient.post(path, files);
+        } finally {
+            // everything else is unchanged, the attachments will be fetched again when needed
+            cache.invalidateField(Collections.singleton(issue.getKey()), "attachment");
+        }
+        List<Attachment> attachments = new ArrayList<>();
+        for (Object obj : new JSONArray(response)) {
+            attachments.add(toAttachment(issue, (JSONObject) obj));
+        }
+        return attachments;
+    }
+
+    private static Attachment toAttachment(Issue issue, JSONObject json) {
+        int id = json.getInt("id");
+        String filename = json.getString("filename");
+        String mimeType = json.getString("mimeType");
+        long size = json.getLong("size");
+        URI content = URI.create(json.getString("content"));
+        return new Attachment(issue, id, filename, mimeType, size, content);
+    }
+
     @Override
     public Status getStatus(Issue issue) {
         Field status = issue.getFieldMap().getFieldById("status");
@@ -488,34 +884,48 @@ public class DefaultWebService implements WebService {
 
     @Override
     public List<Change> getChanges(Issue issue) {
-        String path = "/rest/api/latest/issue/" + issue.getKey() + "?expand=changelog";
-        JSONObject issueJson = get(path, "", new DefaultRequest("creator", "created"));
+        JSONObject issueJson = changelogLoader.load(issue.getKey());
+        if (issueJson == null) {
+            String path = "/rest/api/latest/issue/" + issue.getKey() + "?expand=changelog";
+            issueJson = get(path, "", CHANGELOG_REQUEST);
+        }
         cacheFields(issueJson.getString("key"), issueJson.getJSONObject("fields"));
 
         JSONObject changelog = issueJson.getJSONObject("changelog");
         JSONArray histories = changelog.getJSONArray("histories");
+        if (changelog.optInt("total", histories.length()) > histories.length()) {
+            // the changelog has been truncated, fetch all changes page by page
+            String path = "/rest/api/latest/issue/" + issue.getKey() + "/changelog";
+            return new PaginationList<>(path, "values", TO_CHANGE);
+        }
 
         List<Change> changes = new ArrayList<>();
         for (Object obj : histories) {
-            JSONObject history = (JSONObject) obj;
-            int id = history.getInt("id");
-            User user = ConversionUtils.toUser(history.getJSONObject("author"));
-            Date date = ConversionUtils.parseDate(history.getString("created"));
-            List<Item> items = new ArrayList<>();
-            JSONArray itemArray = history.getJSONArray("items");
-            for (Object item : itemArray) {
-                JSONObject itemJson = (JSONObject) item;
-                String field = itemJson.getString("field");
-                String from = toString(itemJson.get("fromString"));
-                String to = toString(itemJson.get("toString"));
-                items.add(new Item(field, from, to));
-            }
-            changes.add(new Change(id, user, date, items));
+            changes.add(TO_CHANGE.apply((JSONObject) obj, Hint.none()));
         }
-
         return changes;
     }
 
+    /**
+     * @return The issues with the given keys, including their changelog. The pages will be fetched in the background.
+     */
+    private PagedList<JSONObject> searchChangelogs(Collection<String> keys) {
+        String jql = "key IN (" + StringUtils.join(keys, ",") + ")";
+        // the expand parameter is part of the path, so the response will be cached separately
+        String path = SEARCH_PATH + "?jql=" + urlEncode(jql) + "&expand=changelog&maxResults=" + MAX_RESULTS;
+        return new PaginationList<JSONObject>(path, "issues", new Function<JSONObject, JSONObject>() {
+            @Override
+            public JSONObject apply(JSONObject json, Set<Hint> hints) {
+                return json;
+            }
+        }) {
+            @Override
+            protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                return DefaultWebService.this.get(path, getField(), CHANGELOG_REQUEST, consumer);
+            }
+        };
+    }
+
     @Override
     public List<Comment> getComments(Issue issue) {
         List<Comment> comments = new ArrayList<>();
@@ -566,7 +976,7 @@ public class DefaultWebService implements WebService {
             JSONObject request = new JSONObject();
             request.put("update", update);
             String path = "/rest/api/latest/issue/" + issue.getKey() + "?notifyUsers=" + notifyUsers;
-            String response = put(path, request.toString());
+            String response = put(path, request.toString(), Collections.singleton(issue.getKey()));
             checkResponseEmpty(response);
         }
     }
@@ -575,13 +985,14 @@ public class DefaultWebService implements WebService {
     public void addComment(Issue issue, String comment) {
         String path = "/rest/api/latest/issue/" + issue.getKey() + "/comment";
         JSONObject request = new JSONObject().put("body", comment);
-        post(path, request.toString());
+        post(path, request.toString(), Collections.singleton(issue.getKey()));
     }
 
     @Override
     public void transitionIssue(Issue issue, Transition transition) {
         JSONObject request = new JSONObject().put("transition", new JSONObject().put("id", transition.getId()));
-        String response = post("/rest/api/latest/issue/" + issue.getKey() + "/transitions", request.toString());
+        String path = "/rest/api/latest/issue/" + issue.getKey() + "/transitions";
+        String response = post(path, request.toString(), Collections.singleton(issue.getKey()));
         checkResponseEmpty(response);
     }
 
@@ -592,13 +1003,15 @@ public class DefaultWebService implements WebService {
         }
         Issue first = issues.get(0);
         JSONArray issueArr = new JSONArray();
+        List<String> keys = new ArrayList<>();
         for (Issue issue : issues) {
             issueArr.put(issue.getKey());
+            keys.add(issue.getKey());
         }
         JSONObject request = new JSONObject();
         request.put("issues", issueArr);
         request.put("rankBeforeIssue", first.getKey());
-        String response = put("/rest/agile/latest/issue/rank", request.toString());
+        String response = put("/rest/agile/latest/issue/rank", request.toString(), keys);
         checkResponseEmpty(response);
     }
 
@@ -608,19 +1021,21 @@ public class DefaultWebService implements WebService {
         request.put("type", new JSONObject().put("name", name));
         request.put("inwardIssue", new JSONObject().put("key", inward.getKey()));
         request.put("outwardIssue", new JSONObject().put("key", outward.getKey()));
-        String response = post("/rest/api/latest/issueLink", request.toString());
+        List<String> keys = Arrays.asList(inward.getKey(), outward.getKey());
+        String response = post("/rest/api/latest/issueLink", request.toString(), keys);
         checkResponseEmpty(response);
     }
 
     @Override
     public void removeLink(Issue inward, Issue outward, String name) {
+        List<String> keys = Arrays.asList(inward.getKey(), outward.getKey());
         Integer forward = findIssueLink(inward, "outwardIssue", outward.getKey(), name);
         if (forward != null) {
-            removeLink(forward);
+            removeLink(forward, keys);
         }
         Integer backward = findIssueLink(outward, "inwardIssue", inward.getKey(), name);
         if (backward != null) {
-            removeLink(backward);
+            removeLink(backward, keys);
         }
         if (forward == null && backward == null) {
             throw new IllegalArgumentException("No link between " + inward.getKey()
@@ -628,8 +1043,8 @@ public class DefaultWebService implements WebService {
         }
     }
 
-    private void removeLink(int id) {
-        String response = delete("/rest/api/latest/issueLink/" + id);
+    private void removeLink(int id, Collection<String> keys) {
+        String response = delete("/rest/api/latest/issueLink/" + id, keys);
         checkResponseEmpty(response);
     }
 
@@ -921,7 +1336,13 @@ public class DefaultWebService implements WebService {
         String request = new JSONObject().put("issueUpdates", issueUpdates).toString();
         LOGGER.debug("Request: {}", request);
 
-        String response = post("/rest/api/latest/issue/bulk", request);
+        String response;
+        try {
+            response = post("/rest/api/latest/issue/bulk", request, Collections.<String> emptyList());
+        } finally {
+            // the new issues might be included in any search result:
+            cache.invalidateIssueLists();
+        }
 
         JSONObject responseObj = new JSONObject(response);
         JSONArray issueArr = responseObj.getJSONArray("issues");
@@ -942,24 +1363,88 @@ public class DefaultWebService implements WebService {
         }
     }
 
-    private synchronized JSONObject get(String path, String issuesField, Request request) {
+    private static String urlDecode(String str) {
+        try {
+            return URLDecoder.decode(str, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("Unsupported encoding!", e);
+        }
+    }
+
+    private JSONObject get(String path, String issuesField, Request request) {
         Collection<String> fields = filterFields(request);
         String p = addParams(path, request, fields);
-        String cached = cache.getResponse(p);
+        JSONObject cached = getCached(path, p, issuesField, request, fields);
+        if (cached != null) {
+            return cached;
+        }
+        // don't hold the lock while waiting for the response, other pages might be fetched concurrently
+        JSONObject result = get(p, TO_OBJECT);
+        synchronized (cache) {
+            cacheResults(path, issuesField, fields, cache.getIssues(path), result);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #get(String, String, Request)}, but the issues are read one by one from the response and passed to
+     * the consumer, so the response never needs to be kept in memory as a whole
+     *
+     * @return The response, without the issues when they have been streamed
+     */
+    private JSONObject get(String path, final String issuesField, Request request,
+            final Consumer<JSONObject> consumer) {
+        final Collection<String> fields = filterFields(request);
+        String p = addParams(path, request, fields);
+        JSONObject cached = getCached(path, p, issuesField, request, fields);
+        if (cached != null) {
+            for (Object obj : cached.getJSONArray(issuesField)) {
+                consumer.accept((JSONObject) obj);
+            }
+            return cached;
+        }
+        final JSONArray issues = (CACHE_SEARCH_RESULTS ? new JSONArray() : null);
+        JSONObject result = send(p, new Function<Reader, JSONObject>() {
+            @Override
+            public JSONObject apply(Reader reader, Set<Hint> hints) {
+                return JsonUtils.parseObject(reader, issuesField, new Consumer<JSONObject>() {
+                    @Override
+                    public void accept(JSONObject json) {
+                        addFields(json, fields);
+                        if (issues != null) {
+                            issues.put(json);
+                        }
+                        consumer.accept(json);
+                    }
+                });
+            }
+        });
+        if (issues != null) {
+            result.put(issuesField, issues);
+            synchronized (cache) {
+                cacheResults(path, issuesField, fields, cache.getIssues(path), result);
+            }
+        }
+        return result;
+    }
+
+    private JSONObject getCached(String path, String pathWithParams, String issuesField, Request request,
+            Collection<String> fields) {
+        String cached = cache.getResponse(pathWithParams);
         if (cached == null) {
             // find a cached response for any fields:
-            JSONObject cachedJson = cache.getIssues(path);
-            if (cachedJson != null && !request.getAllFields()) {
-                Object issues = (issuesField.isEmpty() ? cachedJson : cachedJson.get(issuesField));
-                boolean fieldsCached = checkFieldsCached(issues, fields);
-                if (fieldsCached) {
-                    // cached response is valid, just use it
-                    return cachedJson;
+            synchronized (cache) {
+                JSONObject cachedJson = cache.getIssues(path);
+                if (cachedJson != null && !request.getAllFields()) {
+                    Object issues = (issuesField.isEmpty() ? cachedJson : cachedJson.get(issuesField));
+                    boolean fieldsCached = checkFieldsCached(issues, fields);
+                    if (fieldsCached) {
+                        // cached response is valid, just use it
+                        return cachedJson;
+                    }
                 }
             }
-            JSONObject result = get(p, TO_OBJECT);
-            cacheResults(path, issuesField, fields, cachedJson, result);
-            return result;
+            return null;
         } else {
             JSONObject result;
             try (StringReader reader = new StringReader(cached)) {
@@ -982,17 +1467,21 @@ public class DefaultWebService implements WebService {
         } else {
             // merge the missing fields with the fields of the cache entry:
             Object target = (issuesField.isEmpty() ? cached : cached.get(issuesField));
+            long addedSize = 0;
             if (source instanceof JSONObject) {
                 JSONObject json = (JSONObject) source;
-                mergeFields(json, target);
+                addedSize += mergeFields(json, target);
             } else if (source instanceof JSONArray) {
                 for (Object obj : (JSONArray) source) {
                     JSONObject json = (JSONObject) obj;
-                    mergeFields(json, target);
+                    addedSize += mergeFields(json, target);
                 }
             } else {
                 throw new IllegalStateException("Invalid response: " + path + ": " + source);
             }
+            if (addedSize > 0) {
+                cache.updateIssues(path, cached, addedSize);
+            }
         }
     }
 
@@ -1035,7 +1524,51 @@ public class DefaultWebService implements WebService {
                 fieldParam = str.toString();
             }
         }
-        return addParam(path, "fields", fieldParam);
+        String result = addParam(path, "fields", fieldParam);
+        if (!request.getExpand().isEmpty()) {
+            result = addParam(result, "expand", StringUtils.join(new TreeSet<>(request.getExpand()), ","));
+        }
+        return result;
+    }
+
+    /**
+     * Sends a GET request for the given path, searches with long URLs will be sent as POST requests instead
+     */
+    private <T> T send(String path, Function<Reader, T> function) {
+        if (path.startsWith(SEARCH_PATH + "?") && path.length() > MAX_URL_LENGTH) {
+            return httpClient.post(SEARCH_PATH, toSearchBody(path), function);
+        } else {
+            return httpClient.get(path, function);
+        }
+    }
+
+    /**
+     * Converts the parameters of the given search path into the body of an equivalent POST request
+     */
+    private static String toSearchBody(String path) {
+        JSONObject body = new JSONObject();
+        String query = path.substring(path.indexOf('?') + 1);
+        for (String param : query.split("&")) {
+            String[] nameValue = param.split("=", 2);
+            String name = nameValue[0];
+            String value = (nameValue.length == 2 ? urlDecode(nameValue[1]) : "");
+            switch (name) {
+                case "startAt":
+                case "maxResults":
+                    body.put(name, Integer.parseInt(value));
+                    break;
+
+                case "fields":
+                case "expand":
+                    body.put(name, new JSONArray(Arrays.asList(value.split(","))));
+                    break;
+
+                default:
+                    body.put(name, value);
+                    break;
+            }
+        }
+        return body.toString();
     }
 
     private static boolean checkFieldsCached(Object issues, Collection<String> fields) {
@@ -1087,38 +1620,50 @@ public class DefaultWebService implements WebService {
         }
     }
 
-    private static void mergeFields(JSONObject source, Object target) {
+    /**
+     * @return The estimated size of the fields that have been added to the target
+     */
+    private static long mergeFields(JSONObject source, Object target) {
         JSONObject sourceFields = source.getJSONObject("fields");
         if (target instanceof JSONObject) {
             JSONObject targetFields = ((JSONObject) target).getJSONObject("fields");
-            mergeEntries(sourceFields, targetFields);
+            return mergeEntries(sourceFields, targetFields);
         } else if (target instanceof JSONArray) {
             String sourceKey = source.getString("key");
+            long addedSize = 0;
             for (Object targetIssueObj : (JSONArray) target) {
                 JSONObject targetIssue = (JSONObject) targetIssueObj;
                 if (sourceKey.equals(targetIssue.get("key"))) {
                     JSONObject targetFields = targetIssue.getJSONObject("fields");
-                    mergeEntries(sourceFields, targetFields);
+                    addedSize += mergeEntries(sourceFields, targetFields);
                 }
             }
+            return addedSize;
         } else {
             throw new IllegalStateException("Invalid object: " + target);
         }
     }
 
-    private static void mergeEntries(JSONObject source, JSONObject target) {
+    /**
+     * @return The estimated size of the entries that have been added to the target
+     */
+    private static long mergeEntries(JSONObject source, JSONObject target) {
+        long addedSize = 0;
         for (String key : source.keySet()) {
             if (!target.has(key)) {
-                target.put(key, source.get(key));
+                Object value = source.get(key);
+                target.put(key, value);
+                addedSize += CacheImpl.estimateSize(key, value);
             }
         }
+        return addedSize;
     }
 
-    private synchronized <T> T get(String path, Function<Reader, T> function) {
+    private <T> T get(String path, Function<Reader, T> function) {
         String response = cache.getResponse(path);
         boolean cacheResponse = false;
         if (response == null) {
-            response = httpClient.get(path);
+            response = send(path, TO_STRING);
             cacheResponse = true;
         }
         T result;
@@ -1132,23 +1677,31 @@ public class DefaultWebService implements WebService {
         return result;
     }
 
-    private String post(String path, String body) {
-        clearCache();
-        return httpClient.post(path, body);
-    }
-
-    private String put(String path, String body) {
-        clearCache();
-        return httpClient.put(path, body);
+    /**
+     * @param keys The issues modified by this request, their cache entries will be removed
+     */
+    private String post(String path, String body, Collection<String> keys) {
+        try {
+            return httpClient.post(path, body);
+        } finally {
+            cache.invalidateIssues(keys);
+        }
     }
 
-    private String delete(String path) {
-        clearCache();
-        return httpClient.delete(path);
+    private String put(String path, String body, Collection<String> keys) {
+        try {
+            return httpClient.put(path, body);
+        } finally {
+            cache.invalidateIssues(keys);
+        }
     }
 
-    private void clearCache() {
-        cache.clear();
+    private String delete(String path, Collection<String> keys) {
+        try {
+            return httpClient.delete(path);
+        } finally {
+            cache.invalidateIssues(keys);
+        }
     }
 
     @Override
@@ -1159,7 +1712,8 @@ public class DefaultWebService implements WebService {
     @Override
     public void close() {
         try {
-            clearCache();
+            executor.shutdownNow();
+            cache.clearMemory();
         } finally {
             httpClient.close();
         }
@@ -1167,155 +1721,94 @@ public class DefaultWebService implements WebService {
 
     private class IssueList extends PaginationList<Issue> {
         private final Request request;
+        private final String countPath;
 
         public IssueList(String path, String field, Request request) {
-            super(path, field, toIssue());
-            this.request = request;
-        }
-
-        @Override
-        protected JSONObject fetch(String path) {
-            return DefaultWebService.this.get(path, getField(), request);
-        }
-    }
-
-    private class PaginationList<E> extends AbstractList<E> {
-        private final List<E> fetched;
-
-        private final String path;
-        private final String field;
-        private final Function<JSONObject, E> function;
-
-        private boolean fetchedAll;
-
-        private int size;
-
-        public PaginationList(String path, String field, Function<JSONObject, E> function) {
-            this.path = path;
-            this.field = field;
-            this.function = function;
-            this.fetched = new ArrayList<>();
-            this.size = -1;
+            this(path, field, request, null);
         }
 
-        protected String getField() {
-            return field;
-        }
-
-        @Override
-        public E get(int index) {
-            while (!fetchedAll && index >= fetched.size()) {
-                fetchMore();
-            }
-            return fetched.get(index);
+        /**
+         * @param countPath Path of a request that only returns the total number of issues, may be <code>null</code>
+         */
+        public IssueList(String path, String field, Request request, String countPath) {
+            super(path, field, toIssue());
+            this.request = request;
+            this.countPath = countPath;
         }
 
         @Override
-        public int size() {
-            while (!fetchedAll && size == -1) {
-                fetchMore();
+        protected int fetchCount() {
+            if (countPath == null) {
+                return -1;
             }
-            return size;
+            // the total changes with every modification, so it is not cached
+            JSONObject object = send(countPath, TO_OBJECT);
+            return object.optInt("total", -1);
         }
 
         @Override
-        public Iterator<E> iterator() {
-            return new Iterator<E>() {
-                private int index = 0;
-
+        protected JSONObject fetch(String path, final Consumer<JSONObject> consumer) {
+            return DefaultWebService.this.get(path, getField(), request, new Consumer<JSONObject>() {
                 @Override
-                public boolean hasNext() {
-                    while (!fetchedAll && index >= fetched.size()) {
-                        fetchMore();
+                public void accept(JSONObject json) {
+                    // note the order in which the issues are received, to load missing fields in batches
+                    String key = json.optString("key", null);
+                    if (key != null) {
+                        receivedKeys.add(key);
                     }
-                    return index < fetched.size();
-                }
-
-                @Override
-                public E next() {
-                    return get(index++);
-                }
-
-                @Override
-                public void remove() {
-                    throw new UnsupportedOperationException();
+                    consumer.accept(json);
                 }
-            };
+            });
         }
+    }
 
-        private void fetchMore() {
-            if (fetchedAll) {
-                throw new IllegalStateException();
-            }
-            String p = path;
-            if (!fetched.isEmpty()) {
-                p = addParam(p, "startAt", fetched.size());
-            }
-            JSONObject object = fetch(p);
-            JSONArray values = object.getJSONArray(field);
-            for (Object obj : values) {
-                JSONObject json = (JSONObject) obj;
-                E element = function.apply(json, Hint.none());
-                if (element == null) {
-                    throw new NullPointerException("Element cannot be null!");
-                }
-                fetched.add(element);
-            }
-            boolean isLast = object.optBoolean("isLast", false);
-            if (isLast) {
-                fetchedAll = true;
-                if (size == -1) {
-                    size = fetched.size();
-                }
-            } else {
-                int total = object.optInt("total", -1);
-                if (total != -1) {
-                    size = total;
-                    if (fetched.size() >= size) {
-                        fetchedAll = true;
-                    }
-                }
-            }
+    /**
+     * Paginated list whose pages are requested on the executor of this service
+     */
+    private class PaginationList<E> extends PagedList<E> {
+        public PaginationList(String path, String field, Function<JSONObject, E> function) {
+            super(executor, READ_AHEAD, path, field, function);
         }
 
-        protected JSONObject fetch(String path) {
-            return DefaultWebService.this.get(path, TO_OBJECT);
+        @Override
+        protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+            JSONObject object = DefaultWebService.this.get(path, TO_OBJECT);
+            for (Object obj : object.getJSONArray(getField())) {
+                consumer.accept((JSONObject) obj);
+            }
+            return object;
         }
     }
 
-    private static String addParam(String path, String parameter, Object value) {
+    static String addParam(String path, String parameter, Object value) {
         return path + (path.contains("?") ? "&" : "?") + parameter + "=" + value;
     }
 
     private class CachedSchema implements Schema {
         @Override
         public Set<String> getFields() {
-            return new HashSet<>(getFieldInfos().keySet());
+            return getFieldIndex().getIds();
         }
 
         @Override
         public String getId(String field) {
-            Map<String, FieldInfo> fieldInfos = getFieldInfos();
-            if (fieldInfos.containsKey(field)) {
-                return field;
-            }
-            for (Map.Entry<String, FieldInfo> entry : fieldInfos.entrySet()) {
-                if (entry.getValue().getName().equals(field)) {
-                    return entry.getKey();
-                }
-            }
-            throw new IllegalArgumentException("Unknown field: " + field);
+            return getFieldIndex().getId(field);
+        }
+
+        @Override
+        public String findId(String field) {
+            return getFieldIndex().findId(field);
         }
 
         @Override
         public String getName(String field) {
-            FieldInfo fieldInfo = getFieldInfos().get(field);
+            FieldInfo fieldInfo = getFieldIndex().getFieldInfo(field);
             return (fieldInfo == null ? field : fieldInfo.getName());
         }
 
         @Override
         public Converter getConverter(String field) {
-            FieldInfo fieldInfo = getFieldInfos().get(field);
+            FieldInfo fieldInfo = getFieldIndex().getFieldInfo(field);
             if (fieldInfo == null) {
                 return ConverterProvider.getDefaultConverter();
             } else {
@@ -1323,10 +1816,15 @@ public class DefaultWebService implements WebService {
             }
         }
 
-        private synchronized Map<String, FieldInfo> getFieldInfos() {
-            Map<String, FieldInfo> fieldInfos = cache.getFieldInfos();
-            if (fieldInfos == null) {
-                fieldInfos = new HashMap<>();
+        private FieldIndex getFieldIndex() {
+            FieldIndex fieldIndex = cache.getFieldIndex();
+            return (fieldIndex == null ? loadFieldIndex() : fieldIndex);
+        }
+
+        private synchronized FieldIndex loadFieldIndex() {
+            FieldIndex fieldIndex = cache.getFieldIndex();
+            if (fieldIndex == null) {
+                Map<String, FieldInfo> fieldInfos = new HashMap<>();
                 JSONArray array = get("/rest/api/latest/field", TO_ARRAY);
                 for (Object obj : array) {
                     JSONObject json = (JSONObject) obj;
@@ -1347,9 +1845,10 @@ public class DefaultWebService implements WebService {
                 }
                 // Field 'parent' is not included in the array!
                 fieldInfos.put("parent", new FieldInfo("Parent", ConverterProvider.getIssueConverter()));
-                cache.setFieldInfos(fieldInfos);
+                fieldIndex = new FieldIndex(fieldInfos);
+                cache.setFieldIndex(fieldIndex);
             }
-            return fieldInfos;
+            return fieldIndex;
         }
     }
 
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pascalgn.jiracli.Constants;
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.IOUtils;
+import com.github.pascalgn.jiracli.util.Supplier;
+
+/**
+ * Persistent cache for responses, stored in files named after the hash of the URL.
+ * <p>
+ * The first lines of every file contain the URL, the resource class and the creation time, followed by the response.
+ * Entries expire when they are older than the TTL of their resource class or when the cache has been invalidated
+ * after they have been created.
+ */
+class DiskCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskCache.class);
+
+    private static final String INVALIDATED = "invalidated";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    enum ResourceClass {
+        SCHEMA(TimeUnit.DAYS.toSeconds(1)), PROJECTS(TimeUnit.DAYS.toSeconds(1)),
+        WORKFLOWS(TimeUnit.DAYS.toSeconds(1)), STATUSES(TimeUnit.DAYS.toSeconds(1)),
+        ISSUES(TimeUnit.MINUTES.toSeconds(5));
+
+        private final long ttl;
+
+        ResourceClass(long defaultTtl) {
+            // can be overridden by system properties like -Djiracli.cacheTtl.schema=3600
+            int seconds = Constants.getInteger("cacheTtl." + name().toLowerCase(), (int) defaultTtl);
+            this.ttl = TimeUnit.SECONDS.toMillis(seconds);
+        }
+
+        public long getTtl() {
+            return ttl;
+        }
+    }
+
+    private final File directory;
+    private final Supplier<String> baseUrl;
+
+    public DiskCache(File directory, Supplier<String> baseUrl) {
+        this.directory = directory;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @return The resource class of the given path or <code>null</code> if responses should not be persisted
+     */
+    static ResourceClass getResourceClass(String path) {
+        if (path.startsWith("/rest/auth/")) {
+            return null;
+        } else if (path.startsWith("/rest/api/latest/field")) {
+            return ResourceClass.SCHEMA;
+        } else if (path.startsWith("/rest/api/latest/project")
+                || path.startsWith("/rest/api/latest/issue/createmeta")) {
+            return ResourceClass.PROJECTS;
+        } else if (path.startsWith("/rest/workflowDesigner/")) {
+            return ResourceClass.WORKFLOWS;
+        } else if (path.startsWith("/rest/api/latest/status")) {
+            return ResourceClass.STATUSES;
+        } else {
+            return ResourceClass.ISSUES;
+        }
+    }
+
+    public String get(String path) {
+        ResourceClass resourceClass = getResourceClass(path);
+        if (resourceClass == null) {
+            return null;
+        }
+        String key = getKey(path);
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = IOUtils.createBufferedReader(file)) {
+            Entry entry = readEntry(reader);
+            if (entry == null || !entry.key.equals(key)) {
+                return null;
+            }
+            if (isExpired(entry, System.currentTimeMillis(), getInvalidated(entry.resourceClass))) {
+                LOGGER.trace("Cache entry expired: {}", key);
+                delete(file);
+                return null;
+            }
+            return IOUtils.toString(reader);
+        } catch (FileNotFoundException e) {
+            // removed concurrently by another process
+            return null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read cache file: {}", file, e);
+            return null;
+        }
+    }
+
+    public void put(String path, String response) {
+        ResourceClass resourceClass = getResourceClass(path);
+        if (resourceClass == null) {
+            return;
+        }
+        String key = getKey(path);
+        File file = getFile(key);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            LOGGER.debug("Could not create cache directory: {}", dir);
+            return;
+        }
+        File tempFile = null;
+        try {
+            // write to a temporary file first, so concurrent readers never see incomplete entries
+            tempFile = File.createTempFile("entry", TEMP_SUFFIX, dir);
+            try (Writer writer = IOUtils.createBufferedWriter(tempFile)) {
+                writer.write(key + "\n" + resourceClass.name() + "\n" + System.currentTimeMillis() + "\n");
+                writer.write(response);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not write cache file: {}", file, e);
+            if (tempFile != null) {
+                delete(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Marks all current entries as expired
+     */
+    public void invalidate() {
+        invalidate(INVALIDATED);
+    }
+
+    /**
+     * Marks all current entries of the given resource class as expired
+     */
+    public void invalidate(ResourceClass resourceClass) {
+        invalidate(getInvalidatedName(resourceClass));
+    }
+
+    private void invalidate(String name) {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            LOGGER.debug("Could not create cache directory: {}", directory);
+            return;
+        }
+        try {
+            IOUtils.write(new File(directory, name), Long.toString(System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not invalidate cache: {}", directory, e);
+        }
+    }
+
+    /**
+     * Removes all expired entries
+     *
+     * @return The number of removed entries
+     */
+    public int prune() {
+        long now = System.currentTimeMillis();
+        Map<ResourceClass, Long> invalidated = getInvalidated();
+        int removed = 0;
+        for (File file : listFiles()) {
+            Entry entry = readEntry(file);
+            if (entry == null || isExpired(entry, now, invalidated.get(entry.resourceClass))) {
+                if (delete(file)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return One line per resource class, with the number of entries and their size
+     */
+    public List<String> getInfo() {
+        long now = System.currentTimeMillis();
+        Map<ResourceClass, Long> invalidated = getInvalidated();
+        Map<ResourceClass, long[]> stats = new EnumMap<>(ResourceClass.class);
+        for (ResourceClass resourceClass : ResourceClass.values()) {
+            stats.put(resourceClass, new long[3]);
+        }
+        for (File file : listFiles()) {
+            Entry entry = readEntry(file);
+            if (entry != null) {
+                long[] s = stats.get(entry.resourceClass);
+                s[0]++;
+                s[1] += file.length();
+                if (isExpired(entry, now, invalidated.get(entry.resourceClass))) {
+                    s[2]++;
+                }
+            }
+        }
+        List<String> info = new ArrayList<>();
+        info.add("Persistent cache: " + directory);
+        for (Map.Entry<ResourceClass, long[]> e : stats.entrySet()) {
+            long[] s = e.getValue();
+            long ttl = TimeUnit.MILLISECONDS.toSeconds(e.getKey().getTtl());
+            info.add("  " + e.getKey().name().toLowerCase() + ": " + s[0] + " entries, " + s[1] + " bytes, "
+                    + s[2] + " expired (TTL " + ttl + "s)");
+        }
+        return info;
+    }
+
+    private String getKey(String path) {
+        return baseUrl.get(Hint.none()) + path;
+    }
+
+    private File getFile(String key) {
+        String hash = hash(key);
+        return new File(new File(directory, hash.substring(0, 2)), hash);
+    }
+
+    private static String hash(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+        StringBuilder str = new StringBuilder();
+        for (byte b : bytes) {
+            str.append(String.format("%02x", b & 0xff));
+        }
+        return str.toString();
+    }
+
+    private List<File> listFiles() {
+        List<File> files = new ArrayList<>();
+        File[] dirs = directory.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                File[] entries = (dir.isDirectory() ? dir.listFiles() : null);
+                if (entries != null) {
+                    for (File file : entries) {
+                        if (file.isFile() && !file.getName().endsWith(TEMP_SUFFIX)) {
+                            files.add(file);
+                        }
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static Entry readEntry(File file) {
+        try (BufferedReader reader = IOUtils.createBufferedReader(file)) {
+            return readEntry(reader);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.trace("Could not read cache file: {}", file, e);
+            return null;
+        }
+    }
+
+    private static Entry readEntry(BufferedReader reader) throws IOException {
+        String key = reader.readLine();
+        String resourceClass = reader.readLine();
+        String created = reader.readLine();
+        if (key == null || resourceClass == null || created == null) {
+            return null;
+        }
+        try {
+            return new Entry(key, ResourceClass.valueOf(resourceClass), Long.parseLong(created));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isExpired(Entry entry, long now, long invalidated) {
+        // entries created in the same millisecond might have been written before the invalidation
+        return entry.created <= invalidated || entry.created + entry.resourceClass.getTtl() < now;
+    }
+
+    private Map<ResourceClass, Long> getInvalidated() {
+        Map<ResourceClass, Long> invalidated = new EnumMap<>(ResourceClass.class);
+        for (ResourceClass resourceClass : ResourceClass.values()) {
+            invalidated.put(resourceClass, getInvalidated(resourceClass));
+        }
+        return invalidated;
+    }
+
+    /**
+     * @return The time when all entries or all entries of the given class have last been invalidated
+     */
+    private long getInvalidated(ResourceClass resourceClass) {
+        long all = readTimestamp(new File(directory, INVALIDATED));
+        return Math.max(all, readTimestamp(new File(directory, getInvalidatedName(resourceClass))));
+    }
+
+    private static String getInvalidatedName(ResourceClass resourceClass) {
+        return INVALIDATED + "." + resourceClass.name().toLowerCase();
+    }
+
+    private static long readTimestamp(File file) {
+        if (file.isFile()) {
+            try {
+                return Long.parseLong(IOUtils.toString(file).trim());
+            } catch (RuntimeException e) {
+                LOGGER.debug("Invalid cache file: {}", file, e);
+            }
+        }
+        return 0;
+    }
+
+    private static boolean delete(File file) {
+        if (file.delete()) {
+            return true;
+        } else {
+            LOGGER.debug("Could not delete cache file: {}", file);
+            return false;
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final ResourceClass resourceClass;
+        private final long created;
+
+        public Entry(String key, ResourceClass resourceClass, long created) {
+            this.key = key;
+            this.resourceClass = resourceClass;
+            this.created = created;
+        }
+    }
+}
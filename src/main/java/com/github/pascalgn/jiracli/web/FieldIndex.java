@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.pascalgn.jiracli.util.StringUtils;
+
+/**
+ * Immutable index of the fields of the schema, to resolve field IDs and names without iterating over all fields.
+ * <p>
+ * Names are matched exactly first, then ignoring case. When a name belongs to more than one field, it can only be
+ * resolved exactly if the spelling is unique, otherwise the field ID has to be used.
+ */
+final class FieldIndex {
+    private final Map<String, FieldInfo> fieldInfos;
+    private final Set<String> ids;
+
+    private final Map<String, String> names;
+    private final Map<String, String> lowerCaseNames;
+    private final Map<String, List<String>> ambiguousNames;
+
+    public FieldIndex(Map<String, FieldInfo> fieldInfos) {
+        this.fieldInfos = Collections.unmodifiableMap(new HashMap<>(fieldInfos));
+        this.ids = Collections.unmodifiableSet(new HashSet<>(fieldInfos.keySet()));
+
+        Map<String, List<String>> byName = new HashMap<>();
+        Map<String, List<String>> byLowerCaseName = new HashMap<>();
+        for (Map.Entry<String, FieldInfo> entry : fieldInfos.entrySet()) {
+            String name = entry.getValue().getName();
+            add(byName, name, entry.getKey());
+            add(byLowerCaseName, toLowerCase(name), entry.getKey());
+        }
+
+        Map<String, String> names = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : byName.entrySet()) {
+            if (entry.getValue().size() == 1) {
+                names.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+
+        Map<String, String> lowerCaseNames = new HashMap<>();
+        Map<String, List<String>> ambiguousNames = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : byLowerCaseName.entrySet()) {
+            List<String> list = entry.getValue();
+            if (list.size() == 1) {
+                lowerCaseNames.put(entry.getKey(), list.get(0));
+            } else {
+                Collections.sort(list);
+                ambiguousNames.put(entry.getKey(), Collections.unmodifiableList(list));
+            }
+        }
+
+        this.names = Collections.unmodifiableMap(names);
+        this.lowerCaseNames = Collections.unmodifiableMap(lowerCaseNames);
+        this.ambiguousNames = Collections.unmodifiableMap(ambiguousNames);
+    }
+
+    private static void add(Map<String, List<String>> map, String name, String id) {
+        List<String> list = map.get(name);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            map.put(name, list);
+        }
+        list.add(id);
+    }
+
+    private static String toLowerCase(String str) {
+        return str.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return All field IDs, the returned set cannot be modified
+     */
+    public Set<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return The field info for the given ID or <code>null</code>
+     */
+    public FieldInfo getFieldInfo(String id) {
+        return fieldInfos.get(id);
+    }
+
+    /**
+     * @param field Field ID or name
+     * @return The field ID, never null
+     * @throws IllegalArgumentException If the field is unknown or the name is ambiguous
+     */
+    public String getId(String field) {
+        String id = findId(field);
+        if (id != null) {
+            return id;
+        }
+        List<String> ambiguous = ambiguousNames.get(toLowerCase(field));
+        if (ambiguous != null) {
+            throw new IllegalArgumentException("Ambiguous field name: " + field + " (use one of "
+                    + StringUtils.join(ambiguous, ", ") + ")");
+        }
+        throw new IllegalArgumentException("Unknown field: " + field);
+    }
+
+    /**
+     * Like {@link #getId(String)}, but for lookups that are expected to fail, like while searching the fields of an
+     * issue, where creating an exception every time would be too expensive
+     *
+     * @param field Field ID or name
+     * @return The field ID or <code>null</code> if the field is unknown or the name is ambiguous
+     */
+    public String findId(String field) {
+        if (fieldInfos.containsKey(field)) {
+            return field;
+        }
+        String id = names.get(field);
+        if (id != null) {
+            return id;
+        }
+        return lowerCaseNames.get(toLowerCase(field));
+    }
+}
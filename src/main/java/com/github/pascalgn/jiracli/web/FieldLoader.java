@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.Schema;
+import com.github.pascalgn.jiracli.model.Value;
+
+/**
+ * Loads single fields which are missing from issues. When a field of one issue is requested, it will also be loaded
+ * for the issues received after it, which are likely to be requested next, with a single search. The loaded fields
+ * are kept in the cache, so they are available when the field is requested for the other issues.
+ */
+abstract class FieldLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FieldLoader.class);
+
+    private final Schema schema;
+    private final CacheImpl cache;
+    private final ReceivedKeys receivedKeys;
+    private final int batchSize;
+
+    /**
+     * @param batchSize Maximum number of issues for which the field will be loaded at once
+     */
+    public FieldLoader(Schema schema, CacheImpl cache, ReceivedKeys receivedKeys, int batchSize) {
+        this.schema = schema;
+        this.cache = cache;
+        this.receivedKeys = receivedKeys;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return The loaded field or <code>null</code> if it could not be loaded on its own
+     */
+    public Field load(Issue issue, String idOrName) {
+        String id = schema.findId(idOrName);
+        if (id == null) {
+            // unknown fields can only be found by loading all fields
+            return null;
+        }
+
+        JSONObject fields = getCachedFields(issue.getKey(), id);
+        if (fields == null) {
+            Set<String> batch = getBatch(issue.getKey(), id);
+            Map<String, JSONObject> loaded;
+            try {
+                loaded = fetchFields(batch, id);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not load field {} of issues: {}", id, batch, e);
+                return null;
+            }
+            fields = loaded.get(issue.getKey());
+            if (fields == null) {
+                return null;
+            }
+        }
+
+        Object val;
+        synchronized (cache) {
+            val = fields.opt(id);
+        }
+        if (val == null || val == JSONObject.NULL) {
+            // searches mark requested fields which were not returned as null, so only loading all fields can tell
+            // whether the issue has the field
+            return null;
+        }
+        return new Field(issue, id, new Value(val));
+    }
+
+    /**
+     * @return The given issue and the issues received after it which don't have the field yet
+     */
+    private Set<String> getBatch(String key, String id) {
+        Set<String> batch = new LinkedHashSet<>();
+        batch.add(key);
+        for (String k : receivedKeys.getFollowing(key, batchSize - 1)) {
+            if (getCachedFields(k, id) == null) {
+                batch.add(k);
+            }
+        }
+        return batch;
+    }
+
+    private JSONObject getCachedFields(String key, String id) {
+        synchronized (cache) {
+            JSONObject fields = cache.getFields(key);
+            return (fields != null && fields.has(id) ? fields : null);
+        }
+    }
+
+    /**
+     * @return The fields of the issues by key, issues which could not be found will be missing
+     */
+    protected abstract Map<String, JSONObject> fetchFields(Collection<String> keys, String field);
+}
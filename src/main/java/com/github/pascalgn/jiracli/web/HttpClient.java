@@ -16,6 +16,7 @@
 package com.github.pascalgn.jiracli.web;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,12 +27,14 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.AccessControlException;
 import java.security.GeneralSecurityException;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.SSLContext;
@@ -40,10 +43,9 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthProtocolState;
 import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.AuthState;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
@@ -51,20 +53,30 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.pascalgn.jiracli.Constants;
 import com.github.pascalgn.jiracli.context.Console;
 import com.github.pascalgn.jiracli.util.Consumer;
 import com.github.pascalgn.jiracli.util.Credentials;
@@ -80,6 +92,15 @@ class HttpClient implements AutoCloseable {
 
     private static final int MAX_ERROR_LENGTH = 500;
 
+    /**
+     * Connection pool settings, can be overridden by system properties like <code>-Djiracli.maxConnections=20</code>
+     */
+    private static final int MAX_CONNECTIONS = Constants.getInteger("maxConnections", 20);
+    private static final int MAX_CONNECTIONS_PER_ROUTE = Constants.getInteger("maxConnectionsPerRoute", 8);
+    private static final int KEEP_ALIVE_SECONDS = Constants.getInteger("keepAlive", 30);
+    private static final int MAX_IDLE_SECONDS = Constants.getInteger("maxIdle", 60);
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
     private static final Function<Reader, String> TO_STRING;
     private static final SSLConnectionSocketFactory SSL_SOCKET_FACTORY;
 
@@ -101,14 +122,15 @@ class HttpClient implements AutoCloseable {
     }
 
     private final Map<String, Credentials> credentials;
-    private final AtomicReference<HttpUriRequest> request;
+    private final Set<HttpUriRequest> requests;
     private final Supplier<String> baseUrl;
     private final CloseableHttpClient httpClient;
-    private final HttpClientContext httpClientContext;
+    private final CredentialsProvider credentialsProvider;
+    private final AuthCache authCache;
 
     public HttpClient(final Console console) {
-        this.credentials = new HashMap<>();
-        this.request = new AtomicReference<>();
+        this.credentials = new ConcurrentHashMap<>();
+        this.requests = Collections.newSetFromMap(new ConcurrentHashMap<HttpUriRequest, Boolean>());
 
         this.baseUrl = new Supplier<String>() {
             @Override
@@ -118,13 +140,13 @@ class HttpClient implements AutoCloseable {
         };
 
         this.httpClient = createHttpClient();
-        this.httpClientContext = createHttpClientContext(console);
+        this.credentialsProvider = createCredentialsProvider(console);
+        this.authCache = new BasicAuthCache();
 
         console.onInterrupt(new Runnable() {
             @Override
             public void run() {
-                HttpUriRequest req = request.get();
-                if (req != null) {
+                for (HttpUriRequest req : requests) {
                     req.abort();
                 }
             }
@@ -132,29 +154,46 @@ class HttpClient implements AutoCloseable {
     }
 
     private static CloseableHttpClient createHttpClient() {
+        // all connections share the same SSL context, so TLS sessions will be resumed for new connections
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSL_SOCKET_FACTORY).build();
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
         HttpClientBuilder httpClientBuilder = HttpClients.custom();
-        httpClientBuilder.setSSLSocketFactory(SSL_SOCKET_FACTORY);
+        httpClientBuilder.setConnectionManager(connectionManager);
+        httpClientBuilder.setKeepAliveStrategy(new KeepAliveStrategy());
+        httpClientBuilder.evictExpiredConnections();
+        httpClientBuilder.evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS);
         return httpClientBuilder.build();
     }
 
-    private HttpClientContext createHttpClientContext(final Console console) {
-        HttpClientContext context = HttpClientContext.create();
-
-        CredentialsProvider credentialsProvider = new CredentialsProvider() {
+    private CredentialsProvider createCredentialsProvider(final Console console) {
+        return new CredentialsProvider() {
             @Override
             public void setCredentials(AuthScope authscope, org.apache.http.auth.Credentials credentials) {
             }
 
             @Override
             public org.apache.http.auth.Credentials getCredentials(AuthScope authscope) {
-                String baseUrl = getBaseUrl();
-                Credentials c = HttpClient.this.credentials.get(baseUrl);
-                if (c == null) {
-                    c = console.getCredentials(authscope.getOrigin().toURI());
+                Credentials c;
+                synchronized (HttpClient.this.credentials) {
+                    // make sure concurrent requests only ask for the credentials once
+                    String baseUrl = getBaseUrl();
+                    c = HttpClient.this.credentials.get(baseUrl);
                     if (c == null) {
-                        throw new IllegalStateException("No credentials provided!");
+                        // scopes created for authentication challenges have no origin
+                        HttpHost origin = authscope.getOrigin();
+                        c = console.getCredentials(origin == null ? baseUrl : origin.toURI());
+                        if (c == null) {
+                            throw new IllegalStateException("No credentials provided!");
+                        }
+                        HttpClient.this.credentials.put(baseUrl, c);
                     }
-                    HttpClient.this.credentials.put(baseUrl, c);
                 }
                 if (c == Credentials.getAnonymous()) {
                     return null;
@@ -167,7 +206,13 @@ class HttpClient implements AutoCloseable {
             public void clear() {
             }
         };
+    }
+
+    private HttpClientContext createHttpClientContext() {
+        // contexts must not be shared between concurrent requests, but the authentication state is shared:
+        HttpClientContext context = HttpClientContext.create();
         context.setCredentialsProvider(credentialsProvider);
+        context.setAuthCache(authCache);
         return context;
     }
 
@@ -194,14 +239,33 @@ class HttpClient implements AutoCloseable {
         return execute(new HttpGet(getUrl(path)), function);
     }
 
-    public void get(final URI uri, final Consumer<InputStream> consumer) {
-        execute(new HttpGet(uri), true, new Function<HttpEntity, Void>() {
+    public void get(URI uri, Consumer<InputStream> consumer) {
+        get(uri, 0, consumer);
+    }
+
+    /**
+     * Requests the content starting at the given offset. The stream passed to the consumer always starts at the
+     * offset, even when the server does not support range requests.
+     */
+    public void get(final URI uri, final long offset, final Consumer<InputStream> consumer) {
+        HttpGet request = new HttpGet(uri);
+        if (offset > 0) {
+            request.addHeader("Range", "bytes=" + offset + "-");
+            // ranges of compressed responses would refer to the compressed content
+            request.addHeader("Accept-Encoding", "identity");
+        }
+        execute(request, true, new Function<HttpResponse, Void>() {
             @Override
-            public Void apply(HttpEntity entity, Set<Hint> hints) {
+            public Void apply(HttpResponse response, Set<Hint> hints) {
+                HttpEntity entity = response.getEntity();
                 if (entity == null) {
                     throw new IllegalStateException("No response!");
                 } else {
                     try (InputStream input = entity.getContent()) {
+                        if (offset > 0 && response.getStatusLine().getStatusCode() != HttpURLConnection.HTTP_PARTIAL) {
+                            LOGGER.debug("Range not supported, skipping {} bytes: {}", offset, uri);
+                            IOUtils.skip(input, offset);
+                        }
                         consumer.accept(input);
                     } catch (IOException e) {
                         throw new IllegalStateException("Could not read response for URL: " + uri, e);
@@ -230,6 +294,15 @@ class HttpClient implements AutoCloseable {
         return execute(request, function);
     }
 
+    /**
+     * Uploads the given files as a <code>multipart/form-data</code> request
+     */
+    public String post(String path, List<File> files) {
+        HttpPost request = new HttpPost(getUrl(path));
+        request.setEntity(new MultipartEntity(files));
+        return execute(request, TO_STRING);
+    }
+
     public String put(URI uri, String body) {
         return put(uri, body, TO_STRING);
     }
@@ -265,24 +338,25 @@ class HttpClient implements AutoCloseable {
     }
 
     private <T> T execute(final HttpUriRequest request, final Function<Reader, T> function) {
-        return execute(request, true, new Function<HttpEntity, T>() {
+        return execute(request, true, new Function<HttpResponse, T>() {
             @Override
-            public T apply(HttpEntity entity, Set<Hint> hints) {
+            public T apply(HttpResponse response, Set<Hint> hints) {
+                HttpEntity entity = response.getEntity();
                 return (entity == null ? null : readResponse(request.getURI(), entity, function));
             }
         });
     }
 
-    private <T> T execute(HttpUriRequest request, boolean retry, Function<HttpEntity, T> function) {
-        this.request.set(request);
+    private <T> T execute(HttpUriRequest request, boolean retry, Function<HttpResponse, T> function) {
+        requests.add(request);
         try {
             return doExecute(request, retry, function);
         } finally {
-            this.request.set(null);
+            requests.remove(request);
         }
     }
 
-    private <T> T doExecute(HttpUriRequest request, boolean retry, Function<HttpEntity, T> function) {
+    private <T> T doExecute(HttpUriRequest request, boolean retry, Function<HttpResponse, T> function) {
         LOGGER.debug("Calling URL: {} [{}]", request.getURI(), request.getMethod());
 
         // disable XSRF check:
@@ -292,7 +366,7 @@ class HttpClient implements AutoCloseable {
 
         HttpResponse response;
         try {
-            response = httpClient.execute(request, httpClientContext);
+            response = httpClient.execute(request, createHttpClientContext());
         } catch (IOException e) {
             if (Thread.interrupted()) {
                 LOGGER.trace("Could not call URL: {}", request.getURI(), e);
@@ -314,7 +388,7 @@ class HttpClient implements AutoCloseable {
             if (isSuccess(statusCode)) {
                 T result;
                 try {
-                    result = function.apply(entity, Hint.none());
+                    result = function.apply(response, Hint.none());
                 } catch (NotAuthenticatedException e) {
                     if (retry) {
                         resetAuthentication();
@@ -373,6 +447,8 @@ class HttpClient implements AutoCloseable {
 
                     if (statusCode == HttpURLConnection.HTTP_NOT_FOUND) {
                         throw new NoSuchElementException(message);
+                    } else if (statusCode == HttpURLConnection.HTTP_BAD_REQUEST) {
+                        throw new BadRequestException(message);
                     } else {
                         throw new IllegalStateException(message);
                     }
@@ -419,22 +495,17 @@ class HttpClient implements AutoCloseable {
     private void resetAuthentication() {
         String url = getBaseUrl();
         credentials.remove(url);
-        AuthState authState = httpClientContext.getTargetAuthState();
-        if (authState != null) {
-            authState.reset();
-        }
+        authCache.clear();
     }
 
     private void setCredentials() {
-        AuthState authState = httpClientContext.getTargetAuthState();
-        if (authState != null) {
-            CredentialsProvider credentialsProvider = httpClientContext.getCredentialsProvider();
-            AuthScope authScope = new AuthScope(HttpHost.create(getBaseUrl()));
-            org.apache.http.auth.Credentials credentials = credentialsProvider.getCredentials(authScope);
-            if (credentials != null) {
-                authState.update(new BasicScheme(), credentials);
-                authState.setState(AuthProtocolState.CHALLENGED);
-            }
+        // the base URL may contain a context path, which is not part of the host
+        URI uri = URI.create(getBaseUrl());
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        org.apache.http.auth.Credentials credentials = credentialsProvider.getCredentials(new AuthScope(host));
+        if (credentials != null) {
+            // send the credentials preemptively with the following requests
+            authCache.put(host, new BasicScheme());
         }
     }
 
@@ -484,6 +555,17 @@ class HttpClient implements AutoCloseable {
         }
     }
 
+    /**
+     * Uses the keep-alive duration sent by the server or a default value, if none has been sent
+     */
+    private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return (duration > 0 ? duration : TimeUnit.SECONDS.toMillis(KEEP_ALIVE_SECONDS));
+        }
+    }
+
     /**
      * Can be thrown to indicate that the error might have been caused by an invalid/insufficient authentication
      */
@@ -499,4 +581,15 @@ class HttpClient implements AutoCloseable {
             return (RuntimeException) super.getCause();
         }
     }
+
+    /**
+     * Thrown when the server rejected the request as invalid [400], the message contains the error response
+     */
+    public static class BadRequestException extends IllegalStateException {
+        private static final long serialVersionUID = -2706432378893722374L;
+
+        public BadRequestException(String message) {
+            super(message);
+        }
+    }
 }
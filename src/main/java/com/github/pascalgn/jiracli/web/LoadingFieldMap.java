@@ -24,6 +24,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.github.pascalgn.jiracli.model.AbstractFieldMap;
 import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.util.Function;
 import com.github.pascalgn.jiracli.util.Hint;
 import com.github.pascalgn.jiracli.util.Supplier;
 
@@ -32,6 +33,7 @@ class LoadingFieldMap extends AbstractFieldMap {
     private final AtomicBoolean loaded;
 
     private Supplier<List<Field>> supplier;
+    private Function<String, Field> fieldLoader;
 
     public LoadingFieldMap() {
         this.loaded = new AtomicBoolean();
@@ -45,6 +47,33 @@ class LoadingFieldMap extends AbstractFieldMap {
         this.supplier = supplier;
     }
 
+    /**
+     * @param fieldLoader Loads single fields, before falling back to loading all fields
+     */
+    void setFieldLoader(Function<String, Field> fieldLoader) {
+        this.fieldLoader = fieldLoader;
+    }
+
+    @Override
+    protected Field loadField(String idOrName) {
+        // don't hold the lock while loading, the field might be loaded for other issues as well
+        if (fieldLoader == null || loaded.get()) {
+            return null;
+        }
+        Field field = fieldLoader.apply(idOrName, Hint.none());
+        if (field != null) {
+            synchronized (this) {
+                Field existing = fields.get(field.getId());
+                if (existing == null) {
+                    fields.put(field.getId(), field);
+                } else {
+                    field = existing;
+                }
+            }
+        }
+        return field;
+    }
+
     @Override
     public synchronized void addField(Field field) {
         String id = field.getId();
@@ -56,14 +85,17 @@ class LoadingFieldMap extends AbstractFieldMap {
 
     @Override
     public Collection<Field> getFields() {
-        return new ArrayList<>(getFields(true));
+        return getFields(true);
     }
 
     @Override
     public Collection<Field> getLoadedFields() {
-        return new ArrayList<>(getFields(false));
+        return getFields(false);
     }
 
+    /**
+     * @return A copy of the fields, which is created while holding the lock, as fields may be added concurrently
+     */
     private synchronized Collection<Field> getFields(boolean loadAll) {
         if (loadAll && loaded.compareAndSet(false, true)) {
             List<Field> all = supplier.get(Hint.none());
@@ -74,6 +106,6 @@ class LoadingFieldMap extends AbstractFieldMap {
                 }
             }
         }
-        return fields.values();
+        return new ArrayList<>(fields.values());
     }
 }
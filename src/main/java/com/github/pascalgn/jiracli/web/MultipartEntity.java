@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * Request entity for <code>multipart/form-data</code> file uploads. The files are streamed when the request is
+ * written or read, so they are never held in memory. The entity is repeatable and has a known length.
+ */
+class MultipartEntity extends AbstractHttpEntity {
+    private static final String FIELD_NAME = "file";
+    private static final String CRLF = "\r\n";
+
+    private final String boundary;
+    private final List<File> files;
+
+    public MultipartEntity(List<File> files) {
+        this.boundary = "jiracli-" + UUID.randomUUID().toString().replace("-", "");
+        this.files = new ArrayList<>(files);
+        setContentType("multipart/form-data; boundary=" + boundary);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        long length = 0;
+        for (File file : files) {
+            length += getHeader(file).length + file.length() + CRLF.length();
+        }
+        return length + getTrailer().length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        List<InputStream> streams = new ArrayList<>();
+        try {
+            for (File file : files) {
+                streams.add(new ByteArrayInputStream(getHeader(file)));
+                streams.add(new FileInputStream(file));
+                streams.add(new ByteArrayInputStream(CRLF.getBytes(StandardCharsets.US_ASCII)));
+            }
+        } catch (IOException e) {
+            for (InputStream stream : streams) {
+                try {
+                    stream.close();
+                } catch (IOException ex) {
+                    // ignore, the original exception is more important
+                }
+            }
+            throw e;
+        }
+        streams.add(new ByteArrayInputStream(getTrailer()));
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        for (File file : files) {
+            output.write(getHeader(file));
+            Files.copy(file.toPath(), output);
+            output.write(CRLF.getBytes(StandardCharsets.US_ASCII));
+        }
+        output.write(getTrailer());
+        output.flush();
+    }
+
+    private byte[] getHeader(File file) {
+        String filename = file.getName().replace("\"", "%22").replace("\r", "").replace("\n", "");
+        String contentType = URLConnection.guessContentTypeFromName(file.getName());
+        StringBuilder str = new StringBuilder();
+        str.append("--").append(boundary).append(CRLF);
+        str.append("Content-Disposition: form-data; name=\"").append(FIELD_NAME).append("\"; filename=\"");
+        str.append(filename).append("\"").append(CRLF);
+        str.append("Content-Type: ").append(contentType == null ? "application/octet-stream" : contentType);
+        str.append(CRLF).append(CRLF);
+        return str.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] getTrailer() {
+        return ("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+}
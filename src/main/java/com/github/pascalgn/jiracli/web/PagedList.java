@@ -0,0 +1,325 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.json.JSONObject;
+
+import com.github.pascalgn.jiracli.util.Consumer;
+import com.github.pascalgn.jiracli.util.Function;
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.InterruptedError;
+
+/**
+ * List of elements that are fetched page by page, while iterating over the list
+ */
+abstract class PagedList<E> extends AbstractList<E> {
+    private final List<E> fetched;
+    private final LinkedList<Page> pages;
+
+    private final ExecutorService executor;
+    private final int readAhead;
+
+    private final String path;
+    private final String field;
+    private final Function<JSONObject, E> function;
+
+    private boolean fetchedAll;
+
+    private int size;
+    private int pageSize;
+
+    private Page current;
+
+    /**
+     * @param executor Used to fetch the pages, tasks on this executor must never wait for other tasks of it
+     * @param readAhead Maximum number of pages that will be fetched in the background
+     */
+    public PagedList(ExecutorService executor, int readAhead, String path, String field,
+            Function<JSONObject, E> function) {
+        this.executor = executor;
+        this.readAhead = readAhead;
+        this.path = path;
+        this.field = field;
+        this.function = function;
+        this.fetched = new ArrayList<>();
+        this.pages = new LinkedList<>();
+        this.size = -1;
+    }
+
+    protected String getField() {
+        return field;
+    }
+
+    /**
+     * Starts fetching the first page in the background, if nothing has been requested yet
+     */
+    public void prefetch() {
+        if (current == null && fetched.isEmpty() && !fetchedAll) {
+            current = fetchPage(0);
+        }
+    }
+
+    /**
+     * Cancels the requests that are running in the background, when the remaining elements are not needed anymore.
+     * The list can still be used afterwards, the pages will be requested again.
+     */
+    public void cancel() {
+        if (current != null) {
+            current.future.cancel(true);
+            current = null;
+        }
+        cancelPages();
+    }
+
+    @Override
+    public E get(int index) {
+        while (!fetchedAll && index >= fetched.size()) {
+            fetchMore();
+        }
+        return fetched.get(index);
+    }
+
+    @Override
+    public int size() {
+        while (!fetchedAll && size == -1) {
+            fetchMore();
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (!fetchedAll && index >= fetched.size()) {
+                    fetchMore();
+                }
+                return index < fetched.size();
+            }
+
+            @Override
+            public E next() {
+                return get(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Reads the next element of the current page, or the remaining response, when the page is complete
+     */
+    private void fetchMore() {
+        if (fetchedAll) {
+            throw new IllegalStateException();
+        }
+        if (current == null) {
+            current = fetchPage(fetched.size());
+        }
+        Object next = take(current);
+        if (next instanceof JSONObject) {
+            E element = function.apply((JSONObject) next, Hint.none());
+            if (element == null) {
+                throw new NullPointerException("Element cannot be null!");
+            }
+            fetched.add(element);
+            return;
+        }
+
+        Page page = current;
+        current = null;
+        JSONObject object;
+        try {
+            object = ((PageResult) next).get();
+        } catch (RuntimeException | Error e) {
+            // the pages fetched in the background would not match anymore, when the caller tries again
+            cancelPages();
+            throw e;
+        }
+        int count = fetched.size() - page.startAt;
+        if (pageSize == 0) {
+            pageSize = count;
+        }
+
+        boolean isLast = object.optBoolean("isLast", false);
+        if (isLast || count == 0) {
+            fetchedAll = true;
+            if (size == -1 || count == 0) {
+                size = fetched.size();
+            }
+        } else {
+            int total = object.optInt("total", -1);
+            if (total != -1) {
+                size = total;
+                if (fetched.size() >= size) {
+                    fetchedAll = true;
+                }
+            }
+        }
+        if (fetchedAll) {
+            cancelPages();
+        }
+    }
+
+    /**
+     * Returns the page starting at the given index. Once the total number of elements is known, the following
+     * pages will be requested in the background, so they are usually available when the caller needs them.
+     */
+    private Page fetchPage(int startAt) {
+        if (startAt > 0 && size != -1 && pageSize > 0) {
+            Page first = pages.peek();
+            if (first != null && first.startAt != startAt) {
+                // the server returned fewer elements than expected, start over:
+                cancelPages();
+            }
+            int next = (pages.isEmpty() ? startAt : pages.getLast().startAt + pageSize);
+            while (pages.size() < readAhead && next < size) {
+                pages.add(submitPage(next));
+                next += pageSize;
+            }
+        }
+        Page page = pages.poll();
+        return (page == null ? submitPage(startAt) : page);
+    }
+
+    private Page submitPage(int startAt) {
+        final Page page = new Page(startAt);
+        final String p = (startAt == 0 ? path : DefaultWebService.addParam(path, "startAt", startAt));
+        page.future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    page.complete(fetch(p, page));
+                } catch (RuntimeException | Error e) {
+                    page.fail(e);
+                }
+            }
+        });
+        return page;
+    }
+
+    private Object take(Page page) {
+        try {
+            return page.elements.take();
+        } catch (InterruptedException e) {
+            page.future.cancel(true);
+            current = null;
+            cancelPages();
+            throw new InterruptedError(e);
+        }
+    }
+
+    private void cancelPages() {
+        for (Page page : pages) {
+            page.future.cancel(true);
+        }
+        pages.clear();
+    }
+
+    /**
+     * Returns the total number of elements. Unlike {@link #size()}, this will not fetch any elements when the total
+     * can be requested separately, so it should only be used when the elements themselves are not needed.
+     */
+    public int count() {
+        if (size == -1 && current == null && fetched.isEmpty()) {
+            size = fetchCount();
+        }
+        return size();
+    }
+
+    /**
+     * @return The total number of elements, when it can be determined without fetching any elements, otherwise
+     *         <code>-1</code>
+     */
+    protected int fetchCount() {
+        return -1;
+    }
+
+    /**
+     * Fetches the given page and passes the elements to the consumer
+     *
+     * @return The response, the elements may or may not be included
+     */
+    protected abstract JSONObject fetch(String path, Consumer<JSONObject> consumer);
+
+    /**
+     * Elements of a page are added as soon as they have been read, followed by a {@link PageResult}
+     */
+    private static class Page implements Consumer<JSONObject> {
+        private final int startAt;
+        private final BlockingQueue<Object> elements;
+
+        private Future<?> future;
+
+        public Page(int startAt) {
+            this.startAt = startAt;
+            this.elements = new LinkedBlockingQueue<>();
+        }
+
+        @Override
+        public void accept(JSONObject element) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedError();
+            }
+            elements.add(element);
+        }
+
+        public void complete(JSONObject response) {
+            elements.add(new PageResult(response, null));
+        }
+
+        public void fail(Throwable error) {
+            elements.add(new PageResult(null, error));
+        }
+    }
+
+    private static class PageResult {
+        private final JSONObject response;
+        private final Throwable error;
+
+        public PageResult(JSONObject response, Throwable error) {
+            this.response = response;
+            this.error = error;
+        }
+
+        public JSONObject get() {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw new IllegalStateException(error);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the order in which issues have been received, so that data of the issues following an issue can be
+ * requested together with the data of that issue
+ */
+class ReceivedKeys {
+    private static final int MAX_SIZE = 1000;
+
+    private final Map<String, Boolean> keys;
+
+    public ReceivedKeys() {
+        this.keys = new LinkedHashMap<String, Boolean>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Adds the given key, unless it has been received before
+     */
+    public synchronized void add(String key) {
+        if (!keys.containsKey(key)) {
+            keys.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @return The keys received after the given key, at most <code>max</code> keys
+     */
+    public synchronized List<String> getFollowing(String key, int max) {
+        List<String> result = new ArrayList<>();
+        if (keys.containsKey(key)) {
+            boolean found = false;
+            for (String k : keys.keySet()) {
+                if (result.size() >= max) {
+                    break;
+                } else if (found) {
+                    result.add(k);
+                } else if (k.equals(key)) {
+                    found = true;
+                }
+            }
+        }
+        return result;
+    }
+}
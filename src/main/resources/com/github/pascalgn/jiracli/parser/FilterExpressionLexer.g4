@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+lexer grammar FilterExpressionLexer;
+
+AND : A N D ;
+OR : O R ;
+NOT : N O T ;
+IN : I N ;
+IS : I S ;
+EMPTY : E M P T Y ;
+
+EQ : '=' | '==' ;
+NE : '!=' ;
+LT : '<' ;
+LE : '<=' ;
+GT : '>' ;
+GE : '>=' ;
+MATCH : '~' ;
+NOT_MATCH : '!~' ;
+
+PLUS : '+' ;
+MINUS : '-' ;
+LPAREN : '(' ;
+RPAREN : ')' ;
+COMMA : ',' ;
+DOT : '.' ;
+
+DURATION
+	: DIGIT+ [wdhmsWDHMS]
+	;
+
+NUMBER
+	: DIGIT+ ('.' DIGIT+)?
+	;
+
+NAME
+	: [a-zA-Z_] [a-zA-Z0-9_]*
+	;
+
+QUOTED_NAME
+	: '`' ~('`' | '\r' | '\n')+ '`'
+	;
+
+STRING
+	: '"' (~('"' | '\\' | '\r' | '\n') | '\\' .)* '"'
+	| '\'' (~('\'' | '\\' | '\r' | '\n') | '\\' .)* '\''
+	;
+
+SPACE
+	: [ \t\r\n]+ -> skip
+	;
+
+fragment DIGIT : [0-9] ;
+
+fragment A : [aA] ;
+fragment D : [dD] ;
+fragment E : [eE] ;
+fragment I : [iI] ;
+fragment M : [mM] ;
+fragment N : [nN] ;
+fragment O : [oO] ;
+fragment P : [pP] ;
+fragment R : [rR] ;
+fragment S : [sS] ;
+fragment T : [tT] ;
+fragment Y : [yY] ;
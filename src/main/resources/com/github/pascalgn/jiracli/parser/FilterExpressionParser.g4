@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+parser grammar FilterExpressionParser;
+
+options { tokenVocab=FilterExpressionLexer; }
+
+
+filterExpression
+	: expression EOF
+	;
+
+expression
+	: LPAREN expression RPAREN                                  # parenExpression
+	| NOT expression                                            # notExpression
+	| value op=(EQ | NE | LT | LE | GT | GE) value              # compareExpression
+	| value NOT? IN LPAREN value (COMMA value)* RPAREN          # inExpression
+	| value op=(MATCH | NOT_MATCH) STRING                       # matchExpression
+	| value IS NOT? EMPTY                                       # emptyExpression
+	| expression AND expression                                 # andExpression
+	| expression OR expression                                  # orExpression
+	;
+
+value
+	: value op=(PLUS | MINUS) value                             # arithmeticValue
+	| NAME LPAREN (value (COMMA value)*)? RPAREN                # functionValue
+	| STRING                                                    # stringValue
+	| MINUS? NUMBER                                             # numberValue
+	| DURATION                                                  # durationValue
+	| fieldName (DOT fieldName)*                                # fieldValue
+	;
+
+fieldName
+	: NAME
+	| QUOTED_NAME
+	;
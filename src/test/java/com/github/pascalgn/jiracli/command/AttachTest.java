@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.github.pascalgn.jiracli.context.WebService;
+import com.github.pascalgn.jiracli.model.Attachment;
+import com.github.pascalgn.jiracli.model.AttachmentList;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+import com.github.pascalgn.jiracli.testutil.MockContext;
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.IOUtils;
+
+public class AttachTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test1a() throws Exception {
+        MockContext context = new MockContext();
+        WebService webService = context.getWebService();
+
+        File file = folder.newFile("build.log");
+        IOUtils.write(file, "Build successful");
+        List<File> files = Collections.singletonList(file);
+
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Issue issue = IssueFactory.create("JRA-" + i);
+            Attachment attachment = new Attachment(issue, i, file.getName(), "text/plain", file.length(),
+                    URI.create("http://" + i));
+            Mockito.when(webService.addAttachments(issue, files)).thenReturn(Arrays.asList(attachment));
+            issues.add(issue);
+        }
+        Mockito.when(webService.addAttachments(issues.get(1), files)).thenThrow(new IllegalStateException("Failed"));
+
+        Attach attach = new Attach(Arrays.asList(file.getAbsolutePath()), 2);
+        AttachmentList result = (AttachmentList) attach.execute(context, new IssueList(issues.iterator()));
+
+        List<Integer> ids = new ArrayList<>();
+        for (Attachment attachment : result.remaining(Hint.none())) {
+            ids.add(attachment.getId());
+        }
+        assertEquals(Arrays.asList(1, 3), ids);
+        assertTrue(context.getConsole().getOutput().contains("Could not attach files to JRA-2: Failed"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test1b() throws Exception {
+        File file = new File(folder.getRoot(), "missing.log");
+        Attach attach = new Attach(Arrays.asList(file.getAbsolutePath()), 2);
+        attach.execute(new MockContext(), new IssueList(Arrays.asList(IssueFactory.create("JRA-1")).iterator()));
+    }
+}
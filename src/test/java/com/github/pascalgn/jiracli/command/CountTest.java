@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.github.pascalgn.jiracli.model.Data;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueHint;
+import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.model.Text;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+import com.github.pascalgn.jiracli.testutil.MockContext;
+import com.github.pascalgn.jiracli.util.CountingSupplier;
+import com.github.pascalgn.jiracli.util.Hint;
+
+public class CountTest {
+    @Test
+    public void test1a() throws Exception {
+        Issue issue1 = IssueFactory.create("ISSUE-1", "summary", "Test1");
+        Issue issue2 = IssueFactory.create("ISSUE-2", "summary", "Test2");
+        Data result = new Count().execute(new MockContext(), new IssueList(issue1, issue2));
+        assertEquals("2", ((Text) result).getText());
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        IssueList issueList = new IssueList(new CountingSupplier<Issue>() {
+            @Override
+            public Issue get(Set<Hint> hints) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int count(Set<Hint> hints) {
+                assertEquals(true, hints.contains(IssueHint.count()));
+                return 1234;
+            }
+        });
+        Data result = new Count().execute(new MockContext(), issueList);
+        assertEquals("1234", ((Text) result).getText());
+    }
+
+    @Test
+    public void test1c() throws Exception {
+        final Issue issue = IssueFactory.create("ISSUE-1", "summary", new JSONObject("{}"));
+        IssueList issueList = new IssueList(new CountingSupplier<Issue>() {
+            private boolean supplied;
+
+            @Override
+            public Issue get(Set<Hint> hints) {
+                Issue result = (supplied ? null : issue);
+                supplied = true;
+                return result;
+            }
+
+            @Override
+            public int count(Set<Hint> hints) {
+                return -1;
+            }
+        });
+        Data result = new Count().execute(new MockContext(), issueList);
+        assertEquals("1", ((Text) result).getText());
+    }
+}
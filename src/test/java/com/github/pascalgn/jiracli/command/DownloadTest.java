@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.github.pascalgn.jiracli.context.WebService;
+import com.github.pascalgn.jiracli.model.Attachment;
+import com.github.pascalgn.jiracli.model.AttachmentList;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+import com.github.pascalgn.jiracli.testutil.MockContext;
+import com.github.pascalgn.jiracli.util.Consumer;
+import com.github.pascalgn.jiracli.util.IOUtils;
+
+public class DownloadTest {
+    private static final String CONTENT = "Hello, World!";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test1a() throws Exception {
+        MockContext context = new MockContext();
+        mockDownload(context.getWebService());
+
+        File dir = folder.getRoot();
+        IOUtils.write(new File(dir, "b.txt.part"), CONTENT.substring(0, 5));
+
+        Issue issue = IssueFactory.create("JRA-1");
+        Attachment a = new Attachment(issue, 1, "a.txt", "text/plain", CONTENT.length(), URI.create("http://a"));
+        Attachment b = new Attachment(issue, 2, "b.txt", "text/plain", CONTENT.length(), URI.create("http://b"));
+        Attachment c = new Attachment(issue, 3, "c.txt", "text/plain", 100, URI.create("http://c"));
+
+        new Download(dir.getAbsolutePath(), 2).execute(context, new AttachmentList(Arrays.asList(a, b, c).iterator()));
+
+        assertEquals(CONTENT, IOUtils.toString(new File(dir, "a.txt")));
+        assertEquals(CONTENT, IOUtils.toString(new File(dir, "b.txt")));
+        assertFalse(new File(dir, "b.txt.part").exists());
+        assertFalse(new File(dir, "c.txt").exists());
+        assertTrue(new File(dir, "c.txt.part").exists());
+
+        Mockito.verify(context.getWebService()).download(Mockito.eq(URI.create("http://b")), Mockito.eq(5L),
+                Mockito.<Consumer<InputStream>> any());
+
+        String output = context.getConsole().getOutput();
+        assertTrue(output.contains("Resuming b.txt"));
+        assertTrue(output.contains("Could not download c.txt"));
+        assertTrue(output.contains("Downloaded 2 files"));
+    }
+
+    @Test
+    public void test1c() throws Exception {
+        MockContext context = new MockContext();
+        mockDownload(context.getWebService());
+
+        File dir = folder.getRoot();
+        Issue issue = IssueFactory.create("JRA-1");
+        Attachment a = new Attachment(issue, 1, "a.txt", "text/plain", CONTENT.length(), URI.create("http://a"));
+        Attachment b = new Attachment(issue, 2, "b.txt", "text/plain", 100, URI.create("http://b"));
+        Attachment c = new Attachment(issue, 3, "c.txt", "text/plain", CONTENT.length(), URI.create("http://c"));
+
+        // downloads one file after the other by default, and stops at the first error
+        try {
+            new Download(dir.getAbsolutePath(), 1).execute(context,
+                    new AttachmentList(Arrays.asList(a, b, c).iterator()));
+            fail("Expected an exception!");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Invalid size"));
+        }
+
+        assertEquals(CONTENT, IOUtils.toString(new File(dir, "a.txt")));
+        assertFalse(new File(dir, "b.txt").exists());
+        assertFalse(new File(dir, "c.txt").exists());
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        assertEquals("Downloaded 1 file (2.0 MB) in 0.5 s, 4.0 MB/s", Download.getSummary(1, 2 * 1024 * 1024,
+                500000000L));
+    }
+
+    private static void mockDownload(WebService webService) {
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                long offset = invocation.getArgumentAt(1, Long.class);
+                @SuppressWarnings("unchecked")
+                Consumer<InputStream> consumer = invocation.getArgumentAt(2, Consumer.class);
+                byte[] bytes = CONTENT.getBytes(StandardCharsets.UTF_8);
+                consumer.accept(new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset));
+                return null;
+            }
+        }).when(webService).download(Mockito.any(URI.class), Mockito.anyLong(), Mockito.<Consumer<InputStream>> any());
+    }
+}
@@ -141,6 +141,11 @@ public class EditingUtilsTest {
             return field;
         }
 
+        @Override
+        public String findId(String field) {
+            return field;
+        }
+
         @Override
         public String getName(String field) {
             return field;
@@ -16,7 +16,9 @@
 package com.github.pascalgn.jiracli.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.json.JSONObject;
@@ -65,6 +67,37 @@ public class FilterTest {
         assertEquals("ISSUE-2", result.get(1).getKey());
     }
 
+    @Test
+    public void test3() throws Exception {
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            issues.add(IssueFactory.create("ISSUE-" + i, "points", i));
+        }
+        Filter filter = new Filter("input.fields.points % 3 == 0", 4);
+        Data result = filter.execute(new MockContext(), new IssueList(issues.iterator()));
+
+        List<Issue> filtered = result.toIssueListOrFail().remaining(Hint.none());
+        assertEquals(34, filtered.size());
+        for (int i = 0; i < filtered.size(); i++) {
+            assertEquals("ISSUE-" + (i * 3), filtered.get(i).getKey());
+        }
+
+        // the threads are stopped once all items have been read, not only when the application exits
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("Filter-")) {
+                thread.join(1000);
+                assertFalse(thread.getName(), thread.isAlive());
+            }
+        }
+    }
+
+    @Test
+    public void test4() throws Exception {
+        List<Issue> result = filterIssueList(new Filter(true, "author.name in ('Test2', 'Test3')"));
+        assertEquals(1, result.size());
+        assertEquals("ISSUE-2", result.get(0).getKey());
+    }
+
     private static List<Issue> filterIssueList(Filter filter) {
         Context context = new MockContext();
 
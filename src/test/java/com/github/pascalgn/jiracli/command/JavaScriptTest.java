@@ -16,7 +16,9 @@
 package com.github.pascalgn.jiracli.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
@@ -24,6 +26,7 @@ import java.util.List;
 import org.json.JSONObject;
 import org.junit.Test;
 
+import com.github.pascalgn.jiracli.context.JavaScriptEngine;
 import com.github.pascalgn.jiracli.model.Data;
 import com.github.pascalgn.jiracli.model.Issue;
 import com.github.pascalgn.jiracli.model.IssueList;
@@ -70,4 +73,24 @@ public class JavaScriptTest {
         JavaScript javaScript = new JavaScript(js, true);
         assertEquals("123456", javaScript.execute(context, new Text("123")).toTextOrFail().getText());
     }
+
+    @Test
+    public void test4() throws Exception {
+        MockContext context = new MockContext();
+        JavaScriptEngine engine = context.getJavaScriptEngine();
+
+        Issue issue = IssueFactory.create("ISSUE-1", "author", new JSONObject("{name:'Author-Name'}"), "points", 3);
+
+        assertTrue(engine.test("input.fields.author.name == 'Author-Name'", issue));
+        assertTrue(engine.test("input.fields.points", issue));
+        assertFalse(engine.test("input.fields.points - 3", issue));
+        assertFalse(engine.test("input.fields.missing", issue));
+        assertFalse(engine.test("input.key.substring(7)", issue));
+        assertTrue(engine.test("input.fields", issue));
+
+        String js = "input.fields.points = 4; JSON.stringify(input)";
+        String json = engine.evaluate(js, issue).next(Hint.none()).getText();
+        assertEquals(new JSONObject("{key:'ISSUE-1',fields:{author:{name:'Author-Name'},points:4}}").toString(),
+                new JSONObject(json).toString());
+    }
 }
@@ -19,6 +19,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.List;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 
@@ -44,4 +45,34 @@ public class PrintTest {
         assertEquals(1, list.size());
         assertEquals("Author-Name", list.get(0).getText());
     }
+
+    @Test
+    public void test2() throws Exception {
+        MockContext context = new MockContext();
+
+        Issue issue1 = IssueFactory.create("ISSUE-1", "author", new JSONObject("{name:'First'}"), "summary", "A");
+        Issue issue2 = IssueFactory.create("ISSUE-2", "author", new JSONObject("{name:'Second'}"), "summary", "B");
+
+        Print print = new Print("$key: $summary (${author.name})");
+        TextList textList = print.execute(context, new IssueList(issue1, issue2));
+
+        List<Text> list = textList.remaining(Hint.none());
+        assertEquals(2, list.size());
+        assertEquals("ISSUE-1: A (First)", list.get(0).getText());
+        assertEquals("ISSUE-2: B (Second)", list.get(1).getText());
+    }
+
+    @Test
+    public void test3() throws Exception {
+        MockContext context = new MockContext();
+
+        Issue issue1 = IssueFactory.create("ISSUE-1", "labels", new JSONArray("['a', 'b']"));
+
+        Print print = new Print("$key: $labels");
+        TextList textList = print.execute(context, new IssueList(issue1));
+
+        // arrays which cannot be converted are printed as JSON, like any other value
+        List<Text> list = textList.remaining(Hint.none());
+        assertEquals("ISSUE-1: [\"a\",\"b\"]", list.get(0).getText());
+    }
 }
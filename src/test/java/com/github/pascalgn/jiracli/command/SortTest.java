@@ -16,19 +16,28 @@
 package com.github.pascalgn.jiracli.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
 import com.github.pascalgn.jiracli.context.Context;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueList;
 import com.github.pascalgn.jiracli.model.Text;
 import com.github.pascalgn.jiracli.model.TextList;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
 import com.github.pascalgn.jiracli.testutil.MockContext;
 import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.Supplier;
 
 public class SortTest {
     @Test
@@ -59,6 +68,103 @@ public class SortTest {
         assertEquals(Arrays.asList("c", "b", "a"), result);
     }
 
+    @Test
+    public void test1e() throws Exception {
+        List<String> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(Integer.toString((i * 7919) % 500));
+        }
+        input.add("a\\b\nc");
+
+        Sort sort = new Sort(Collections.<String> emptyList(), true, false, true, 1000, 32);
+        List<String> result = sort(sort, input);
+
+        assertEquals(501, result.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Integer.toString(i), result.get(i));
+        }
+        assertEquals("a\\b\nc", result.get(500));
+    }
+
+    @Test
+    public void test1f() throws Exception {
+        List<Text> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(new Text("text/plain", Integer.toString((i * 7919) % 1000) + "\t"));
+        }
+
+        // every few texts are written to a file, more files than can be merged at once:
+        Sort sort = new Sort(Collections.<String> emptyList(), true, false, false, 1000, 3);
+        MockContext context = new MockContext();
+        TextList result = (TextList) sort.execute(context, new TextList("text/plain", input.iterator()));
+
+        List<Text> texts = result.remaining(Hint.none());
+        assertEquals(1000, texts.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i + "\t", texts.get(i).getText());
+            assertEquals("text/plain", texts.get(i).getType());
+        }
+        context.close();
+    }
+
+    @Test
+    public void test1g() throws Exception {
+        List<Text> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(new Text(Integer.toString(i)));
+        }
+
+        Set<String> before = listTemporaryFiles();
+        Sort sort = new Sort(Collections.<String> emptyList(), true, false, false, 1000, 32);
+        TextList result = (TextList) sort.execute(new MockContext(), new TextList(input.iterator()));
+        assertEquals("0", result.next(Hint.none()).getText());
+        assertTrue(listTemporaryFiles().size() > before.size());
+
+        // the files are closed and removed when the result has been read completely:
+        assertEquals(999, result.remaining(Hint.none()).size());
+        assertEquals(before, listTemporaryFiles());
+    }
+
+    @Test
+    public void test1h() throws Exception {
+        final List<Text> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(new Text(Integer.toString(i)));
+        }
+
+        Set<String> before = listTemporaryFiles();
+        Sort sort = new Sort(Collections.<String> emptyList(), true, false, false, 1000, 32);
+        TextList result = (TextList) sort.execute(new MockContext(), new TextList(new Supplier<Text>() {
+            private int index;
+
+            @Override
+            public Text get(Set<Hint> hints) {
+                if (index == input.size()) {
+                    throw new IllegalStateException("Input failed");
+                }
+                return input.get(index++);
+            }
+        }));
+        try {
+            result.next(Hint.none());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Input failed", e.getMessage());
+        }
+        assertEquals(before, listTemporaryFiles());
+    }
+
+    private static Set<String> listTemporaryFiles() {
+        Set<String> names = new HashSet<>();
+        String[] files = new File(System.getProperty("java.io.tmpdir")).list();
+        for (String name : (files == null ? new String[0] : files)) {
+            if (name.startsWith("sort") && name.endsWith(".txt")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
     private static List<String> sort(Sort sort, List<String> input) {
         List<Text> textList = new ArrayList<>();
         for (String str : input) {
@@ -90,4 +196,17 @@ public class SortTest {
     public void test2c() throws Exception {
         assertEquals(1, Sort.compareKeys("B-2", "A-10"));
     }
+
+    @Test
+    public void test3() throws Exception {
+        Issue issue1 = IssueFactory.create("A-10", "points", "2");
+        Issue issue2 = IssueFactory.create("A-9", "points", "10");
+        Issue issue3 = IssueFactory.create("B-1", "points", "2");
+        Issue issue4 = IssueFactory.create("A-2", "points", "x");
+
+        Sort sort = new Sort(Arrays.asList("points", "key"), true, false, false);
+        IssueList result = (IssueList) sort.execute(new MockContext(),
+                new IssueList(issue3, issue4, issue2, issue1));
+        assertEquals(Arrays.asList(issue1, issue3, issue2, issue4), result.remaining(Hint.none()));
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.pascalgn.jiracli.model.Status;
+import com.github.pascalgn.jiracli.model.Step;
+import com.github.pascalgn.jiracli.model.Transition;
+import com.github.pascalgn.jiracli.model.Workflow;
+
+public class TransitionPlannerTest {
+    private static final Status OPEN = new Status(1, "Open");
+    private static final Status IN_PROGRESS = new Status(2, "In Progress");
+    private static final Status REVIEW = new Status(3, "Review");
+    private static final Status DONE = new Status(4, "Done");
+
+    private static final Step OPEN_STEP = new Step("1", OPEN);
+    private static final Step IN_PROGRESS_STEP = new Step("2", IN_PROGRESS);
+    private static final Step REVIEW_STEP = new Step("3", REVIEW);
+    private static final Step DONE_STEP = new Step("4", DONE);
+
+    private static final Transition START = new Transition(11, "Start", OPEN_STEP, IN_PROGRESS_STEP);
+    private static final Transition SUBMIT = new Transition(21, "Submit", IN_PROGRESS_STEP, REVIEW_STEP);
+    private static final Transition APPROVE = new Transition(31, "Approve", REVIEW_STEP, DONE_STEP);
+    private static final Transition REJECT = new Transition(32, "Reject", REVIEW_STEP, IN_PROGRESS_STEP);
+    private static final Transition REOPEN = new Transition(41, "Reopen", OPEN_STEP, OPEN_STEP);
+
+    @Test
+    public void test1a() throws Exception {
+        Workflow workflow = new Workflow("Workflow", Arrays.asList(START, SUBMIT, REJECT, APPROVE));
+        TransitionPlanner planner = new TransitionPlanner();
+        assertEquals(Arrays.asList(START, SUBMIT, APPROVE), planner.getTransitions(workflow, OPEN, DONE));
+        assertEquals(Arrays.asList(APPROVE), planner.getTransitions(workflow, REVIEW, DONE));
+        assertEquals(Collections.emptyList(), planner.getTransitions(workflow, DONE, DONE));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        Workflow workflow = new Workflow("Workflow", Arrays.asList(START, SUBMIT, REJECT, APPROVE, REOPEN));
+        TransitionPlanner planner = new TransitionPlanner();
+        assertEquals(Arrays.asList(REOPEN, START), planner.getTransitions(workflow, DONE, IN_PROGRESS));
+        assertEquals(Arrays.asList(REJECT), planner.getTransitions(workflow, REVIEW, IN_PROGRESS));
+    }
+
+    @Test
+    public void test1c() throws Exception {
+        Workflow workflow = new Workflow("Workflow", Arrays.asList(START, SUBMIT, REJECT, APPROVE));
+        TransitionPlanner planner = new TransitionPlanner();
+        List<Transition> first = planner.getTransitions(workflow, IN_PROGRESS, DONE);
+        assertSame(first, planner.getTransitions(workflow, IN_PROGRESS, DONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test2a() throws Exception {
+        Workflow workflow = new Workflow("Workflow", Arrays.asList(START, SUBMIT, REJECT, APPROVE));
+        new TransitionPlanner().getTransitions(workflow, DONE, OPEN);
+    }
+}
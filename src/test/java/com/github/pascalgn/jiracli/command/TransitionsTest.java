@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.pascalgn.jiracli.context.WebService;
+import com.github.pascalgn.jiracli.context.WebService.Request;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.model.IssueList;
+import com.github.pascalgn.jiracli.model.Status;
+import com.github.pascalgn.jiracli.model.Step;
+import com.github.pascalgn.jiracli.model.Transition;
+import com.github.pascalgn.jiracli.model.Workflow;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+import com.github.pascalgn.jiracli.testutil.MockContext;
+import com.github.pascalgn.jiracli.util.Hint;
+
+public class TransitionsTest {
+    private static final Status OPEN = new Status(1, "Open");
+    private static final Status DONE = new Status(2, "Done");
+
+    private static final Transition CLOSE = new Transition(11, "Close", new Step("1", OPEN), new Step("2", DONE));
+
+    private static final Workflow WORKFLOW = new Workflow("Workflow", Arrays.asList(CLOSE));
+
+    @Test
+    public void test1a() throws Exception {
+        MockContext context = new MockContext();
+        WebService webService = context.getWebService();
+
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            Issue issue = IssueFactory.create("ISSUE-" + i);
+            Mockito.when(webService.getStatus(issue)).thenReturn(OPEN);
+            Mockito.when(webService.getWorkflow(issue)).thenReturn(WORKFLOW);
+            issues.add(issue);
+        }
+        Mockito.when(webService.getStatus("Done")).thenReturn(DONE);
+        Mockito.doThrow(new IllegalStateException("Failed")).when(webService).transitionIssue(issues.get(3), CLOSE);
+
+        IssueList result = (IssueList) new Transitions("Done", 4).execute(context, new IssueList(issues.iterator()));
+
+        List<String> keys = new ArrayList<>();
+        for (Issue issue : result.remaining(Hint.none())) {
+            keys.add(issue.getKey());
+        }
+        assertEquals(Arrays.asList("ISSUE-1", "ISSUE-2", "ISSUE-3", "ISSUE-5", "ISSUE-6", "ISSUE-7", "ISSUE-8",
+                "ISSUE-9", "ISSUE-10"), keys);
+        assertTrue(context.getConsole().getOutput().contains("Could not transition ISSUE-4: Failed"));
+
+        Mockito.verify(webService, Mockito.times(10)).transitionIssue(Mockito.any(Issue.class),
+                Mockito.eq(CLOSE));
+        Mockito.verify(webService, Mockito.never()).getIssue(Mockito.anyString(), Mockito.any(Request.class));
+
+        // the threads are stopped once all issues have been transitioned, not only when the application exits
+        assertStopped("Transition-");
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        MockContext context = new MockContext();
+        WebService webService = context.getWebService();
+
+        Issue issue1 = IssueFactory.create("ISSUE-1");
+        Issue issue2 = IssueFactory.create("ISSUE-2");
+        for (Issue issue : Arrays.asList(issue1, issue2)) {
+            Mockito.when(webService.getStatus(issue)).thenReturn(OPEN);
+            Mockito.when(webService.getWorkflow(issue)).thenReturn(WORKFLOW);
+        }
+        Mockito.when(webService.getStatus("Done")).thenReturn(DONE);
+        Mockito.doThrow(new IllegalStateException("Failed")).when(webService).transitionIssue(issue1, CLOSE);
+
+        IssueList input = new IssueList(Arrays.asList(issue1, issue2).iterator());
+        IssueList result = (IssueList) new Transitions("Done", 1).execute(context, input);
+        try {
+            result.next(Hint.none());
+            fail();
+        } catch (IllegalStateException e) {
+            // sequential transitions fail on the first error
+            assertEquals("Failed", e.getMessage());
+        }
+        Mockito.verify(webService, Mockito.never()).transitionIssue(issue2, CLOSE);
+    }
+
+    private static void assertStopped(String prefix) throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(prefix)) {
+                thread.join(1000);
+                assertFalse(thread.getName(), thread.isAlive());
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+
+public class FilterExpressionTest {
+    private static final Issue ISSUE = IssueFactory.create("ISSUE-1", "status", new JSONObject("{name:'Done'}"),
+            "priority", new JSONObject("{name:'P2'}"), "labels", new JSONArray("['a','b']"), "points", 3,
+            "created", "2016-03-01T10:00:00.000+0000", "resolutiondate", "2016-03-10T10:00:00.000+0000",
+            "fixVersions", new JSONArray("[{name:'1.0'},{name:'1.1'}]"));
+
+    @Test
+    public void test1() {
+        assertTrue(test("status = \"Done\" and priority in (\"P1\", \"P2\")"));
+        assertFalse(test("status = 'Done' AND priority NOT IN ('P1', 'P2')"));
+        assertTrue(test("not status != 'Done'"));
+        assertTrue(test("key = 'ISSUE-1' or missing = 1"));
+        assertFalse(test("(key = 'ISSUE-1' or missing = 1) and status = 'Open'"));
+    }
+
+    @Test
+    public void test2() {
+        assertTrue(test("labels = 'b'"));
+        assertFalse(test("labels != 'b'"));
+        assertTrue(test("labels in ('c', 'a')"));
+        assertTrue(test("fixVersions.name = '1.1'"));
+        assertTrue(test("fixVersions.name ~ '^1\\.[0-9]$'"));
+        assertFalse(test("fixVersions.name !~ '^1\\.'"));
+        assertTrue(test("missing is empty and labels is not empty"));
+    }
+
+    @Test
+    public void test3() {
+        assertTrue(test("points > 2.5 and points <= 3 and points in (1, 3.0)"));
+        assertTrue(test("points + 1 = 4"));
+        assertFalse(test("points < -1"));
+    }
+
+    @Test
+    public void test4() {
+        assertTrue(test("created >= date('2016-03-01') and created < '2016-03-02'"));
+        assertTrue(test("created < now() - 52w"));
+        assertTrue(test("resolutiondate - created > 1w and resolutiondate - created < 10d"));
+        assertTrue(test("created + 9d = resolutiondate"));
+    }
+
+    @Test
+    public void test5() {
+        FilterExpression expression = FilterExpression.compile("key = 'A' or summary ~ 'x' or `Story Points` > 1",
+                null);
+        assertEquals(Arrays.asList("summary", "Story Points"), expression.getFields());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSyntax() {
+        test("status = ");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTypes() {
+        test("created > 1d");
+    }
+
+    private static boolean test(String expression) {
+        return FilterExpression.compile(expression, null).test(ISSUE);
+    }
+}
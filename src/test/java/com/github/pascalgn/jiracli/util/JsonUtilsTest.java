@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class JsonUtilsTest {
+    @Test
+    public void test1a() throws Exception {
+        String json = "{\"startAt\": 0, \"issues\": [{\"key\": \"A-1\"}, {\"key\": \"A-2\"}], \"total\": 2}";
+        final List<String> keys = new ArrayList<>();
+        JSONObject result = JsonUtils.parseObject(new StringReader(json), "issues", new Consumer<JSONObject>() {
+            @Override
+            public void accept(JSONObject obj) {
+                keys.add(obj.getString("key"));
+            }
+        });
+        assertEquals(Arrays.asList("A-1", "A-2"), keys);
+        assertEquals(2, result.getInt("total"));
+        assertFalse(result.has("issues"));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        String json = "{\"issues\": [], \"isLast\": true}";
+        final List<JSONObject> issues = new ArrayList<>();
+        JSONObject result = JsonUtils.parseObject(new StringReader(json), "issues", new Consumer<JSONObject>() {
+            @Override
+            public void accept(JSONObject obj) {
+                issues.add(obj);
+            }
+        });
+        assertEquals(0, issues.size());
+        assertEquals(true, result.getBoolean("isLast"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void test1c() throws Exception {
+        JsonUtils.parseObject(new StringReader("{\"issues\": [1, 2]}"), "issues", new Consumer<JSONObject>() {
+            @Override
+            public void accept(JSONObject obj) {
+            }
+        });
+    }
+}
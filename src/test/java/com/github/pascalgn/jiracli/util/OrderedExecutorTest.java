@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class OrderedExecutorTest {
+    @Test
+    public void test1() throws Exception {
+        OrderedExecutor<Integer, String> executor = new OrderedExecutor<>("Test", 3, 3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                final int delay = 3 - i;
+                executor.submit(i, new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        // the first task completes last
+                        Thread.sleep(delay * 20);
+                        if (delay == 2) {
+                            throw new IllegalStateException("Failed");
+                        }
+                        return "Task " + delay;
+                    }
+                });
+            }
+            assertTrue(executor.isFull());
+
+            OrderedExecutor.Result<Integer, String> result = executor.take();
+            assertEquals(0, result.getItem().intValue());
+            assertEquals("Task 3", result.get());
+            assertFalse(executor.isFull());
+
+            result = executor.take();
+            assertEquals(1, result.getItem().intValue());
+            assertEquals("Failed", result.getError().getMessage());
+
+            assertEquals("Task 1", executor.take().get());
+            assertTrue(executor.isEmpty());
+            assertNull(executor.take());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.pascalgn.jiracli.model.Transition;
+import com.github.pascalgn.jiracli.model.Workflow;
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.Supplier;
+
+public class CacheImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test1a() throws Exception {
+        String response = "{\"key\": \"JRA-123\"}";
+        long entrySize = CacheImpl.estimateSize(response);
+
+        CacheImpl cache = new CacheImpl(null, 2 * entrySize);
+        cache.putResponse("/a", response);
+        cache.putResponse("/b", response);
+        assertNotNull(cache.getResponse("/a"));
+
+        // "/b" is the least recently used entry now
+        cache.putResponse("/c", response);
+        assertNull(cache.getResponse("/b"));
+        assertNotNull(cache.getResponse("/a"));
+        assertNotNull(cache.getResponse("/c"));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        CacheImpl cache = new CacheImpl(null, 1);
+        cache.putResponse("/a", "Larger than the budget");
+        assertEquals("Larger than the budget", cache.getResponse("/a"));
+        cache.putResponse("/b", "Larger than the budget");
+        assertNull(cache.getResponse("/a"));
+    }
+
+    @Test
+    public void test1c() throws Exception {
+        JSONObject fields = new JSONObject().put("summary", "A");
+        long entrySize = CacheImpl.estimateSize(fields);
+
+        CacheImpl cache = new CacheImpl(null, 3 * entrySize);
+        cache.putFields("JRA-1", new JSONObject().put("summary", "B"));
+        cache.putFields("JRA-2", fields);
+
+        String description = new String(new char[100]).replace('\0', 'x');
+        fields.put("description", description);
+        cache.updateFields("JRA-2", fields, CacheImpl.estimateSize("description", description));
+
+        // the merged entry does not fit into the budget together with the other one anymore
+        assertNull(cache.getFields("JRA-1"));
+        assertNotNull(cache.getFields("JRA-2"));
+    }
+
+    @Test
+    public void test2a() throws Exception {
+        CacheImpl cache = new CacheImpl();
+        cache.putFields("JRA-1", new JSONObject());
+        cache.putFields("JRA-2", new JSONObject());
+        cache.putResponse("/rest/api/latest/issue/JRA-1?fields=*all", "{}");
+        cache.putResponse("/rest/api/latest/issue/JRA-2/editmeta", "{}");
+        JSONArray issues = new JSONArray().put(new JSONObject().put("key", "JRA-2"));
+        cache.putIssues("/rest/api/latest/search", new JSONObject().put("issues", issues));
+        cache.putWorkflowName("JRA/1", "Workflow");
+        cache.putWorkflow("Workflow", new Workflow("Workflow", Collections.<Transition> emptyList()));
+        cache.putEditMeta("JRA/1/3", new JSONObject().put("fields", new JSONObject()));
+
+        cache.invalidateIssues(Collections.singleton("JRA-2"));
+
+        assertNotNull(cache.getFields("JRA-1"));
+        assertNotNull(cache.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(cache.getFields("JRA-2"));
+        assertNull(cache.getResponse("/rest/api/latest/issue/JRA-2/editmeta"));
+        assertNull(cache.getIssues("/rest/api/latest/search"));
+        assertEquals("Workflow", cache.getWorkflowName("JRA/1"));
+        assertNotNull(cache.getWorkflow("Workflow"));
+        assertNotNull(cache.getEditMeta("JRA/1/3"));
+    }
+
+    @Test
+    public void test2b() throws Exception {
+        File directory = folder.newFolder();
+        CacheImpl cache = new CacheImpl(new DiskCache(directory, baseUrl()));
+        JSONObject fields1 = new JSONObject().put("summary", "A").put("attachment", new JSONArray());
+        cache.putFields("JRA-1", fields1);
+        cache.putFields("JRA-2", new JSONObject().put("summary", "B").put("attachment", new JSONArray()));
+        cache.putResponse("/rest/api/latest/issue/JRA-1?fields=*all", "{\"fields\":{\"attachment\":[]}}");
+        cache.putResponse("/rest/api/latest/issue/JRA-1/transitions", "{\"transitions\":[]}");
+        JSONObject fields = new JSONObject().put("attachment", new JSONArray());
+        JSONArray issues = new JSONArray().put(new JSONObject().put("key", "JRA-1").put("fields", fields));
+        JSONObject search = new JSONObject().put("issues", issues);
+        cache.putIssues("/rest/api/latest/search", search);
+
+        cache.invalidateField(Collections.singleton("JRA-1"), "attachment");
+
+        assertEquals("{\"summary\":\"A\"}", cache.getFields("JRA-1").toString());
+        assertNotNull(cache.getFields("JRA-2").opt("attachment"));
+        assertNull(cache.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNotNull(cache.getResponse("/rest/api/latest/issue/JRA-1/transitions"));
+        assertEquals("{}", cache.getIssues("/rest/api/latest/search").getJSONArray("issues").getJSONObject(0)
+                .getJSONObject("fields").toString());
+
+        // objects that might still be in use are not modified:
+        assertNotNull(fields1.opt("attachment"));
+        assertNotNull(search.getJSONArray("issues").getJSONObject(0).getJSONObject("fields").opt("attachment"));
+
+        // the responses of issues persisted on disk have all been expired:
+        CacheImpl other = new CacheImpl(new DiskCache(directory, baseUrl()));
+        assertNull(other.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(other.getResponse("/rest/api/latest/issue/JRA-1/transitions"));
+    }
+
+    @Test
+    public void test2c() throws Exception {
+        CacheImpl cache = new CacheImpl();
+        String path = "/rest/api/latest/search?jql=key%20IN%20(JRA-1,JRA-2)&maxResults=2&fields=customfield_1";
+        cache.putResponse(path, "{\"issues\":[{\"key\":\"JRA-1\",\"fields\":{\"customfield_1\":1}},"
+                + "{\"key\":\"JRA-2\",\"fields\":{\"customfield_1\":2}}]}");
+        cache.putResponse("/rest/api/latest/search?jql=key%3DJRA-10", "{\"issues\":[{\"key\":\"JRA-10\"}]}");
+
+        // the field has been updated, so loading it again must not return the old value:
+        cache.invalidateIssues(Collections.singleton("JRA-2"));
+
+        assertNull(cache.getResponse(path));
+        assertNotNull(cache.getResponse("/rest/api/latest/search?jql=key%3DJRA-10"));
+    }
+
+    @Test
+    public void test2d() throws Exception {
+        CacheImpl cache = new CacheImpl();
+        cache.putResponse("/rest/api/latest/search?jql=a", "{\"issues\":[{\"key\":\"JRA-1\"}]}");
+        cache.putResponse("/rest/api/latest/search?jql=a", "{\"issues\":[{\"key\":\"JRA-2\"}]}");
+
+        // the replaced response does not contain the issue anymore
+        cache.invalidateIssues(Collections.singleton("JRA-1"));
+        assertNotNull(cache.getResponse("/rest/api/latest/search?jql=a"));
+
+        cache.invalidateIssues(Collections.singleton("JRA-2"));
+        assertNull(cache.getResponse("/rest/api/latest/search?jql=a"));
+    }
+
+    @Test
+    public void test3a() throws Exception {
+        File directory = folder.newFolder();
+        CacheImpl cache = new CacheImpl(new DiskCache(directory, baseUrl()));
+        cache.putResponse("/rest/api/latest/field", "[]");
+        cache.putResponse("/rest/api/latest/issue/JRA-1?fields=*all", "{\"key\":\"JRA-1\"}");
+        cache.putResponse("/rest/api/latest/issue/JRA-2?fields=*all", "{\"key\":\"JRA-2\"}");
+        cache.putResponse("/rest/api/latest/search?jql=project%3DJRA", "{\"issues\":[{\"key\":\"JRA-2\"}]}");
+
+        cache.invalidateIssues(Collections.singleton("JRA-2"));
+
+        assertNotNull(cache.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+
+        // a new process only sees the persisted entries, where all responses of issues have been expired:
+        CacheImpl other = new CacheImpl(new DiskCache(directory, baseUrl()));
+        assertNotNull(other.getResponse("/rest/api/latest/field"));
+        assertNull(other.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(other.getResponse("/rest/api/latest/issue/JRA-2?fields=*all"));
+        assertNull(other.getResponse("/rest/api/latest/search?jql=project%3DJRA"));
+    }
+
+    @Test
+    public void test3b() throws Exception {
+        File directory = folder.newFolder();
+        CacheImpl cache = new CacheImpl(new DiskCache(directory, baseUrl()));
+        cache.putResponse("/rest/api/latest/issue/JRA-1?fields=*all", "{\"key\":\"JRA-1\"}");
+        cache.putResponse("/rest/api/latest/search?jql=project%3DJRA", "{\"issues\":[{\"key\":\"JRA-1\"}]}");
+
+        cache.invalidateIssueLists();
+
+        assertNotNull(cache.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(cache.getResponse("/rest/api/latest/search?jql=project%3DJRA"));
+
+        CacheImpl other = new CacheImpl(new DiskCache(directory, baseUrl()));
+        assertNull(other.getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(other.getResponse("/rest/api/latest/search?jql=project%3DJRA"));
+    }
+
+    @Test
+    public void test3c() throws Exception {
+        final CacheImpl[] cache = new CacheImpl[1];
+        DiskCache diskCache = new DiskCache(folder.newFolder(), baseUrl()) {
+            @Override
+            public String get(String path) {
+                String response = super.get(path);
+                // the issue is updated by another thread, while the response is being read:
+                cache[0].invalidateIssues(Collections.singletonList("JRA-1"));
+                return response;
+            }
+        };
+        new CacheImpl(diskCache).putResponse("/rest/api/latest/issue/JRA-1?fields=*all", "{\"key\":\"JRA-1\"}");
+
+        cache[0] = new CacheImpl(diskCache);
+        assertNotNull(cache[0].getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+        assertNull(cache[0].getResponse("/rest/api/latest/issue/JRA-1?fields=*all"));
+    }
+
+    private static Supplier<String> baseUrl() {
+        return new Supplier<String>() {
+            @Override
+            public String get(Set<Hint> hints) {
+                return "http://jira.example.com";
+            }
+        };
+    }
+}
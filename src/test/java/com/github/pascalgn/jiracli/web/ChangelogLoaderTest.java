@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.pascalgn.jiracli.util.Consumer;
+import com.github.pascalgn.jiracli.util.Function;
+import com.github.pascalgn.jiracli.util.Hint;
+
+public class ChangelogLoaderTest {
+    private ExecutorService executor;
+    private List<Collection<String>> requests;
+    private List<Collection<String>> cancelled;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        requests = new ArrayList<>();
+        cancelled = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test1a() throws Exception {
+        ReceivedKeys receivedKeys = new ReceivedKeys();
+        for (String key : Arrays.asList("A-1", "A-2", "A-3", "A-4")) {
+            receivedKeys.add(key);
+        }
+
+        ChangelogLoader changelogLoader = createLoader(receivedKeys, 3);
+
+        assertEquals("A-2", changelogLoader.load("A-2").getString("key"));
+        assertEquals("A-4", changelogLoader.load("A-4").getString("key"));
+        assertNull(changelogLoader.load("A-3"));
+        assertEquals("A-1", changelogLoader.load("A-1").getString("key"));
+
+        assertEquals(Arrays.asList(Arrays.asList("A-2", "A-3", "A-4"), Arrays.asList("A-1", "A-2", "A-3")), requests);
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        ReceivedKeys receivedKeys = new ReceivedKeys();
+        for (String key : Arrays.asList("A-1", "A-2", "A-3", "A-4")) {
+            receivedKeys.add(key);
+        }
+
+        ChangelogLoader changelogLoader = createLoader(receivedKeys, 2);
+
+        assertEquals("A-2", changelogLoader.load("A-2").getString("key"));
+        assertEquals(Collections.emptyList(), cancelled);
+
+        // the previous batch is replaced, so its remaining pages are not fetched anymore:
+        assertEquals("A-1", changelogLoader.load("A-1").getString("key"));
+        assertEquals(Arrays.asList(Arrays.asList("A-2", "A-3")), cancelled);
+    }
+
+    private ChangelogLoader createLoader(ReceivedKeys receivedKeys, int batchSize) {
+        return new ChangelogLoader(receivedKeys, batchSize) {
+            @Override
+            protected PagedList<JSONObject> search(final Collection<String> keys) {
+                requests.add(new ArrayList<>(keys));
+                return new PagedList<JSONObject>(executor, 2, "/search", "issues", toJson()) {
+                    @Override
+                    protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                        for (String key : keys) {
+                            // A-3 does not exist
+                            if (!key.equals("A-3")) {
+                                consumer.accept(new JSONObject().put("key", key));
+                            }
+                        }
+                        return new JSONObject().put("isLast", true);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancelled.add(new ArrayList<>(keys));
+                        super.cancel();
+                    }
+                };
+            }
+        };
+    }
+
+    private static Function<JSONObject, JSONObject> toJson() {
+        return new Function<JSONObject, JSONObject>() {
+            @Override
+            public JSONObject apply(JSONObject json, Set<Hint> hints) {
+                return json;
+            }
+        };
+    }
+}
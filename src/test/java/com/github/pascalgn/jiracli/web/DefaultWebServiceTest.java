@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.github.pascalgn.jiracli.context.DefaultRequest;
+import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.model.Issue;
+import com.github.pascalgn.jiracli.util.Function;
+import com.github.pascalgn.jiracli.util.Hint;
+
+public class DefaultWebServiceTest {
+    private static final String FIELDS = "[{\"id\":\"summary\",\"name\":\"Summary\"},"
+            + "{\"id\":\"assignee\",\"name\":\"Assignee\"},{\"id\":\"customfield_1\",\"name\":\"Points\"}]";
+
+    private static final String SEARCH_RESULT = "{\"total\":2,\"issues\":["
+            + "{\"key\":\"JRA-1\",\"fields\":{\"summary\":\"A\"}},"
+            + "{\"key\":\"JRA-2\",\"fields\":{\"summary\":\"B\"}}]}";
+
+    /**
+     * Responses by a part of the decoded path, the first matching one is returned
+     */
+    private Map<String, String> responses;
+    /**
+     * Errors by a part of the decoded path, which are thrown instead of returning a response
+     */
+    private Map<String, RuntimeException> errors;
+    private List<String> requests;
+
+    private HttpClient httpClient;
+    private DefaultWebService webService;
+
+    @Before
+    public void setUp() {
+        responses = new LinkedHashMap<>();
+        errors = new LinkedHashMap<>();
+        requests = Collections.synchronizedList(new ArrayList<String>());
+        httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.getBaseUrl()).thenReturn("http://jira.example.com");
+        Mockito.when(httpClient.get(Mockito.anyString(), Matchers.<Function<Reader, Object>> any()))
+                .thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        return respond((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+                    }
+                });
+        webService = new DefaultWebService(httpClient, null);
+    }
+
+    @After
+    public void tearDown() {
+        webService.close();
+    }
+
+    @Test
+    public void test1a() throws Exception {
+        responses.put("/field", FIELDS);
+        responses.put("fields=customfield_1,", "{\"issues\":[{\"key\":\"JRA-1\",\"fields\":{\"customfield_1\":5}},"
+                + "{\"key\":\"JRA-2\",\"fields\":{}}]}");
+        responses.put("fields=issuetype,parent,", "{\"issues\":[{\"key\":\"JRA-1\",\"fields\":{}},"
+                + "{\"key\":\"JRA-2\",\"fields\":{}}]}");
+        responses.put("/search?jql=key IN (JRA-1,JRA-2)", "{\"total\":2,\"issues\":["
+                + "{\"key\":\"JRA-1\",\"fields\":{\"summary\":\"A\"}},"
+                + "{\"key\":\"JRA-2\",\"fields\":{\"summary\":\"B\"}}]}");
+        responses.put("/issue/JRA-1?", "{\"key\":\"JRA-1\",\"fields\":{\"summary\":\"A\",\"customfield_1\":5}}");
+        responses.put("/issue/JRA-2?", "{\"key\":\"JRA-2\",\"fields\":{\"summary\":\"B\",\"assignee\":null}}");
+
+        List<Issue> issues = webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+
+        // loaded for both issues with a single search:
+        Field points = issues.get(0).getFieldMap().getFieldById("customfield_1");
+        assertEquals(5, points.getValue().get());
+        assertEquals(1, count("fields=customfield_1,"));
+
+        // the search did not return the field, so all fields are loaded to find out whether the issue has it:
+        assertNull(issues.get(1).getFieldMap().getFieldById("customfield_1"));
+        assertEquals(1, count("/issue/JRA-2?"));
+        Field assignee = issues.get(1).getFieldMap().getFieldById("assignee");
+        assertNotNull(assignee);
+        assertNull(assignee.getValue().get());
+
+        assertNull(issues.get(0).getFieldMap().getFieldById("parent"));
+        assertEquals(1, count("fields=issuetype,parent,"));
+        assertEquals(1, count("/issue/JRA-1?"));
+    }
+
+    @Test
+    public void test2a() throws Exception {
+        responses.put("/field", FIELDS);
+        errors.put("/search?jql=key IN (JRA-1,JRA-2,JRA-9)",
+                new HttpClient.BadRequestException("An issue with key 'JRA-9' does not exist for field 'key'."));
+        errors.put("/issue/JRA-9?", new NoSuchElementException("Issue Does Not Exist"));
+        responses.put("/issue/JRA-1?", "{\"key\":\"JRA-1\",\"fields\":{\"summary\":\"A\"}}");
+        responses.put("/issue/JRA-2?", "{\"key\":\"JRA-2\",\"fields\":{\"summary\":\"B\"}}");
+
+        // the search fails because of the missing issue, so every issue is loaded on its own:
+        try {
+            webService.getIssues(Arrays.asList("JRA-2", "JRA-9", "JRA-1"), new DefaultRequest());
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Issue not found: JRA-9", e.getMessage());
+        }
+        assertEquals(1, count("/search?"));
+        assertEquals(1, count("/issue/JRA-1?"));
+        assertEquals(1, count("/issue/JRA-2?"));
+        assertEquals(1, count("/issue/JRA-9?"));
+
+        // the loaded issues have been cached:
+        List<Issue> issues = webService.getIssues(Arrays.asList("JRA-2", "JRA-1"), new DefaultRequest());
+        assertEquals("JRA-2", issues.get(0).getKey());
+        assertEquals("JRA-1", issues.get(1).getKey());
+        assertEquals(1, count("/search?"));
+    }
+
+    @Test
+    public void test2b() throws Exception {
+        responses.put("/field", FIELDS);
+        errors.put("/search?", new HttpClient.BadRequestException("Error in the JQL Query"));
+
+        // other errors are not hidden by loading the issues one by one:
+        try {
+            webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+            fail();
+        } catch (HttpClient.BadRequestException e) {
+            assertEquals("Error in the JQL Query", e.getMessage());
+        }
+        assertEquals(0, count("/issue/"));
+    }
+
+    @Test
+    public void test2c() throws Exception {
+        responses.put("/field", FIELDS);
+        errors.put("/search?", new IllegalStateException("Service Unavailable"));
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            keys.add("JRA-" + i);
+        }
+
+        // only a few of the 20 searches are started in advance, the others are not requested after the error:
+        try {
+            webService.getIssues(keys, new DefaultRequest());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Service Unavailable", e.getMessage());
+        }
+        Thread.sleep(100);
+        assertTrue(count("/search?") <= 4);
+    }
+
+    @Test
+    public void test3a() throws Exception {
+        responses.put("/field", FIELDS);
+        responses.put("AND updated >= -4m", "{\"total\":0,\"issues\":[]}");
+        responses.put("/search?jql=key IN (JRA-1,JRA-2)&", SEARCH_RESULT);
+        webService.setRevalidateAfter(60);
+        webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+
+        long now = System.currentTimeMillis();
+        CacheImpl cache = (CacheImpl) webService.getCache();
+        cache.setFieldsValidated(Collections.singletonList("JRA-1"), now - TimeUnit.SECONDS.toMillis(210));
+        cache.setFieldsValidated(Collections.singletonList("JRA-2"), now - TimeUnit.SECONDS.toMillis(30));
+
+        // only the stale issue is checked, 3.5 minutes are rounded up to the next full minute:
+        webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+        assertEquals(1, count("updated >="));
+        assertEquals(1, count("/search?jql=key IN (JRA-1) AND updated >= -4m&fields=updated&"));
+
+        // it has not been updated, so the cached fields are used and count as validated again:
+        assertEquals(1, count("/search?jql=key IN (JRA-1,JRA-2)&"));
+        assertTrue(cache.getFieldsValidated("JRA-1") >= now);
+        assertEquals(now - TimeUnit.SECONDS.toMillis(30), cache.getFieldsValidated("JRA-2"));
+    }
+
+    @Test
+    public void test3b() throws Exception {
+        responses.put("/field", FIELDS);
+        responses.put("AND updated >= -2m", "{\"total\":1,\"issues\":[{\"key\":\"JRA-2\"}]}");
+        responses.put("/search?jql=key IN (JRA-1,JRA-2)&", SEARCH_RESULT);
+        responses.put("/issue/JRA-2?", "{\"key\":\"JRA-2\",\"fields\":{\"summary\":\"C\"}}");
+        webService.setRevalidateAfter(60);
+        webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+
+        long now = System.currentTimeMillis();
+        CacheImpl cache = (CacheImpl) webService.getCache();
+        cache.setFieldsValidated(Collections.singletonList("JRA-1"), now - TimeUnit.SECONDS.toMillis(90));
+        cache.setFieldsValidated(Collections.singletonList("JRA-2"), now - TimeUnit.SECONDS.toMillis(70));
+
+        // only the updated issue is fetched again:
+        List<Issue> issues = webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+        assertEquals(1, count("/search?jql=key IN (JRA-1,JRA-2) AND updated >= -2m&"));
+        assertEquals(1, count("/search?jql=key IN (JRA-1,JRA-2)&"));
+        assertEquals(1, count("/issue/JRA-2?"));
+        assertEquals("A", issues.get(0).getFieldMap().getFieldById("summary").getValue().get());
+        assertEquals("C", issues.get(1).getFieldMap().getFieldById("summary").getValue().get());
+        assertTrue(cache.getFieldsValidated("JRA-1") >= now);
+    }
+
+    @Test
+    public void test3c() throws Exception {
+        responses.put("/field", FIELDS);
+        errors.put("AND updated >=", new IllegalStateException("Service Unavailable"));
+        responses.put("/search?jql=key IN (JRA-1,JRA-2)&", SEARCH_RESULT);
+        webService.setRevalidateAfter(60);
+        webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+
+        long now = System.currentTimeMillis();
+        CacheImpl cache = (CacheImpl) webService.getCache();
+        cache.setFieldsValidated(Arrays.asList("JRA-1", "JRA-2"), now - TimeUnit.MINUTES.toMillis(5));
+
+        // when the updated issues cannot be found, all stale issues are fetched again:
+        webService.getIssues(Arrays.asList("JRA-1", "JRA-2"), new DefaultRequest());
+        assertEquals(1, count("updated >="));
+        assertEquals(2, count("/search?jql=key IN (JRA-1,JRA-2)&"));
+    }
+
+    @Test
+    public void test4a() throws Exception {
+        responses.put("/field", FIELDS);
+        final List<JSONObject> bodies = Collections.synchronizedList(new ArrayList<JSONObject>());
+        Mockito.when(httpClient.post(Mockito.eq("/rest/api/latest/search"), Mockito.anyString(),
+                Matchers.<Function<Reader, Object>> any())).thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        JSONObject body = new JSONObject((String) invocation.getArguments()[1]);
+                        bodies.add(body);
+                        String key = (body.optInt("startAt", 0) == 0 ? "JRA-1" : "JRA-2");
+                        String response = "{\"total\":2,\"issues\":[{\"key\":\"" + key + "\",\"fields\":{}}]}";
+                        @SuppressWarnings("unchecked")
+                        Function<Reader, Object> f = (Function<Reader, Object>) invocation.getArguments()[2];
+                        return f.apply(new StringReader(response), Hint.none());
+                    }
+                });
+
+        StringBuilder jql = new StringBuilder("summary ~ \"a&b=c\"");
+        while (jql.length() <= 4000) {
+            jql.append(" OR summary ~ \"text\"");
+        }
+        DefaultRequest request = new DefaultRequest(false, Arrays.asList("summary", "Points"),
+                Arrays.asList("renderedFields", "changelog"));
+
+        // the URL would be too long, so the search is sent as a POST request:
+        List<Issue> issues = webService.searchIssues(jql.toString(), request);
+        assertEquals(2, issues.size());
+        assertEquals("JRA-1", issues.get(0).getKey());
+        assertEquals("JRA-2", issues.get(1).getKey());
+        assertEquals(0, count("/search"));
+
+        assertEquals(2, bodies.size());
+        for (JSONObject body : bodies) {
+            assertEquals(jql.toString(), body.getString("jql"));
+            assertEquals(100, body.getInt("maxResults"));
+            List<Object> fields = new ArrayList<>();
+            for (Object field : body.getJSONArray("fields")) {
+                fields.add(field);
+            }
+            assertTrue(fields.contains("summary"));
+            assertTrue(fields.contains("customfield_1"));
+            assertEquals("[\"changelog\",\"renderedFields\"]", body.getJSONArray("expand").toString());
+        }
+        assertFalse(bodies.get(0).has("startAt"));
+        assertEquals(1, bodies.get(1).getInt("startAt"));
+    }
+
+    private Object respond(String path, Object function) throws Exception {
+        String decoded = URLDecoder.decode(path, "UTF-8");
+        requests.add(decoded);
+        for (Map.Entry<String, RuntimeException> entry : errors.entrySet()) {
+            if (decoded.contains(entry.getKey())) {
+                throw entry.getValue();
+            }
+        }
+        for (Map.Entry<String, String> entry : responses.entrySet()) {
+            if (decoded.contains(entry.getKey())) {
+                @SuppressWarnings("unchecked")
+                Function<Reader, Object> f = (Function<Reader, Object>) function;
+                return f.apply(new StringReader(entry.getValue()), Hint.none());
+            }
+        }
+        throw new IllegalStateException("Unexpected request: " + decoded);
+    }
+
+    private int count(String request) {
+        int count = 0;
+        synchronized (requests) {
+            for (String r : requests) {
+                if (r.contains(request)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
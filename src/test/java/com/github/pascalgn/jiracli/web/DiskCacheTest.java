@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.pascalgn.jiracli.util.Hint;
+import com.github.pascalgn.jiracli.util.IOUtils;
+import com.github.pascalgn.jiracli.util.Supplier;
+import com.github.pascalgn.jiracli.web.DiskCache.ResourceClass;
+
+public class DiskCacheTest {
+    private static final String BASE_URL = "http://jira.example.com";
+
+    private static final String SCHEMA = "/rest/api/latest/field";
+    private static final String ISSUE = "/rest/api/latest/issue/JRA-1";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private DiskCache diskCache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder();
+        diskCache = new DiskCache(directory, new Supplier<String>() {
+            @Override
+            public String get(Set<Hint> hints) {
+                return BASE_URL;
+            }
+        });
+    }
+
+    @Test
+    public void test1a() throws Exception {
+        long before = System.currentTimeMillis();
+        diskCache.put(ISSUE, "{\"key\":\"JRA-1\"}\n{}");
+
+        File file = getFile(ISSUE);
+        assertTrue(file.isFile());
+        assertEquals(1, listFiles().size());
+
+        String[] lines = IOUtils.toString(file).split("\n", 4);
+        assertEquals(BASE_URL + ISSUE, lines[0]);
+        assertEquals("ISSUES", lines[1]);
+        long created = Long.parseLong(lines[2]);
+        assertTrue(created >= before && created <= System.currentTimeMillis());
+        assertEquals("{\"key\":\"JRA-1\"}\n{}", lines[3]);
+
+        assertEquals("{\"key\":\"JRA-1\"}\n{}", diskCache.get(ISSUE));
+        assertNull(diskCache.get("/rest/api/latest/issue/JRA-2"));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        // responses of the authentication are never persisted
+        diskCache.put("/rest/auth/1/session", "{}");
+        assertTrue(listFiles().isEmpty());
+        assertNull(diskCache.get("/rest/auth/1/session"));
+
+        assertEquals(ResourceClass.SCHEMA, DiskCache.getResourceClass(SCHEMA));
+        assertEquals(ResourceClass.PROJECTS, DiskCache.getResourceClass("/rest/api/latest/issue/createmeta"));
+        assertEquals(ResourceClass.WORKFLOWS, DiskCache.getResourceClass("/rest/workflowDesigner/1.0/workflows"));
+        assertEquals(ResourceClass.ISSUES, DiskCache.getResourceClass(ISSUE));
+    }
+
+    @Test
+    public void test2a() throws Exception {
+        diskCache.put(SCHEMA, "[]");
+        diskCache.put(ISSUE, "{}");
+
+        // older than the TTL of issues, but not of the schema:
+        long created = System.currentTimeMillis() - ResourceClass.ISSUES.getTtl() - TimeUnit.MINUTES.toMillis(1);
+        setCreated(SCHEMA, created);
+        setCreated(ISSUE, created);
+
+        assertEquals("[]", diskCache.get(SCHEMA));
+        assertNull(diskCache.get(ISSUE));
+        assertFalse(getFile(ISSUE).exists());
+    }
+
+    @Test
+    public void test2b() throws Exception {
+        diskCache.put(SCHEMA, "[]");
+        diskCache.put(ISSUE, "{}");
+
+        diskCache.invalidate(ResourceClass.ISSUES);
+        assertEquals("[]", diskCache.get(SCHEMA));
+        assertNull(diskCache.get(ISSUE));
+
+        // entries added after the invalidation are valid again
+        Thread.sleep(2);
+        diskCache.put(ISSUE, "{}");
+        assertEquals("{}", diskCache.get(ISSUE));
+
+        diskCache.invalidate();
+        assertNull(diskCache.get(SCHEMA));
+        assertNull(diskCache.get(ISSUE));
+    }
+
+    @Test
+    public void test3a() throws Exception {
+        diskCache.put(SCHEMA, "[]");
+        diskCache.put(ISSUE, "{}");
+        diskCache.put("/rest/api/latest/issue/JRA-2", "{}");
+        setCreated(ISSUE, System.currentTimeMillis() - ResourceClass.ISSUES.getTtl() - 1000);
+
+        List<String> info = diskCache.getInfo();
+        assertTrue(info.contains("  schema: 1 entries, " + getFile(SCHEMA).length() + " bytes, 0 expired (TTL "
+                + TimeUnit.MILLISECONDS.toSeconds(ResourceClass.SCHEMA.getTtl()) + "s)"));
+        assertTrue(info.get(5).startsWith("  issues: 2 entries, "));
+        assertTrue(info.get(5).contains(" 1 expired "));
+
+        assertEquals(1, diskCache.prune());
+        assertEquals(2, listFiles().size());
+        assertFalse(getFile(ISSUE).exists());
+        assertNotNull(diskCache.get("/rest/api/latest/issue/JRA-2"));
+    }
+
+    @Test
+    public void test4a() throws Exception {
+        diskCache.put(ISSUE, "{}");
+        diskCache.put(SCHEMA, "[]");
+
+        // truncated header and unknown resource class:
+        IOUtils.write(getFile(ISSUE), BASE_URL + ISSUE + "\nISSUES\n");
+        IOUtils.write(getFile(SCHEMA), BASE_URL + SCHEMA + "\nUNKNOWN\n0\n[]");
+
+        assertNull(diskCache.get(ISSUE));
+        assertNull(diskCache.get(SCHEMA));
+        assertTrue(diskCache.getInfo().get(1).startsWith("  schema: 0 entries, "));
+
+        // files that cannot be read are removed
+        assertEquals(2, diskCache.prune());
+        assertTrue(listFiles().isEmpty());
+    }
+
+    @Test
+    public void test4b() throws Exception {
+        diskCache.put(ISSUE, "{}");
+
+        // a file of another entry with the same hash is never returned:
+        File file = getFile(ISSUE);
+        String content = IOUtils.toString(file);
+        IOUtils.write(file, content.replace(BASE_URL + ISSUE, BASE_URL + SCHEMA));
+        assertNull(diskCache.get(ISSUE));
+
+        // temporary files of concurrent writes are ignored
+        File temp = new File(file.getParentFile(), "entry123.tmp");
+        IOUtils.write(temp, content);
+        assertEquals(1, listFiles().size());
+        assertEquals(0, diskCache.prune());
+        assertTrue(temp.exists());
+    }
+
+    private File getFile(String path) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest((BASE_URL + path).getBytes(StandardCharsets.UTF_8))) {
+            hash.append(String.format("%02x", b & 0xff));
+        }
+        return new File(new File(directory, hash.substring(0, 2)), hash.toString());
+    }
+
+    private void setCreated(String path, long created) throws Exception {
+        File file = getFile(path);
+        String[] lines = IOUtils.toString(file).split("\n", 4);
+        IOUtils.write(file, lines[0] + "\n" + lines[1] + "\n" + created + "\n" + lines[3]);
+    }
+
+    private List<File> listFiles() {
+        List<File> files = new ArrayList<>();
+        for (File dir : directory.listFiles()) {
+            if (dir.isDirectory()) {
+                for (File file : dir.listFiles()) {
+                    if (!file.getName().endsWith(".tmp")) {
+                        files.add(file);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+}
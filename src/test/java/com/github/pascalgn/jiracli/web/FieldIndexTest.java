@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FieldIndexTest {
+    @Test
+    public void test1a() throws Exception {
+        FieldIndex index = createIndex();
+        assertEquals("summary", index.getId("summary"));
+        assertEquals("summary", index.getId("Summary"));
+        assertEquals("summary", index.getId("SUMMARY"));
+        assertEquals("customfield_1", index.getId("Story Points"));
+        assertEquals("customfield_2", index.getId("story points"));
+        assertEquals("customfield_3", index.getId("customfield_3"));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        FieldIndex index = createIndex();
+        try {
+            index.getId("Team");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Ambiguous field name: Team (use one of customfield_3, customfield_4)", e.getMessage());
+        }
+        try {
+            index.getId("STORY POINTS");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Ambiguous field name"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test1c() throws Exception {
+        createIndex().getId("Unknown");
+    }
+
+    @Test
+    public void test1d() throws Exception {
+        FieldIndex index = createIndex();
+        assertEquals("summary", index.findId("SUMMARY"));
+        assertEquals("customfield_1", index.findId("Story Points"));
+        assertNull(index.findId("Team"));
+        assertNull(index.findId("STORY POINTS"));
+        assertNull(index.findId("Unknown"));
+    }
+
+    private static FieldIndex createIndex() {
+        Map<String, FieldInfo> fieldInfos = new HashMap<>();
+        fieldInfos.put("summary", new FieldInfo("Summary", ConverterProvider.getDefaultConverter()));
+        fieldInfos.put("customfield_1", new FieldInfo("Story Points", ConverterProvider.getDefaultConverter()));
+        fieldInfos.put("customfield_2", new FieldInfo("story points", ConverterProvider.getDefaultConverter()));
+        fieldInfos.put("customfield_3", new FieldInfo("Team", ConverterProvider.getDefaultConverter()));
+        fieldInfos.put("customfield_4", new FieldInfo("Team", ConverterProvider.getDefaultConverter()));
+        return new FieldIndex(fieldInfos);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.github.pascalgn.jiracli.model.Field;
+import com.github.pascalgn.jiracli.model.Schema;
+import com.github.pascalgn.jiracli.testutil.IssueFactory;
+
+public class FieldLoaderTest {
+    @Test
+    public void test1a() throws Exception {
+        Schema schema = Mockito.mock(Schema.class);
+        Mockito.when(schema.findId("Points")).thenReturn("customfield_1");
+
+        final CacheImpl cache = new CacheImpl();
+        final List<Collection<String>> requests = new ArrayList<>();
+        ReceivedKeys receivedKeys = new ReceivedKeys();
+        FieldLoader fieldLoader = new FieldLoader(schema, cache, receivedKeys, 2) {
+            @Override
+            protected Map<String, JSONObject> fetchFields(Collection<String> keys, String field) {
+                requests.add(new ArrayList<>(keys));
+                Map<String, JSONObject> result = new HashMap<>();
+                for (String key : keys) {
+                    JSONObject fields = new JSONObject().put(field, key.toLowerCase());
+                    cache.putFields(key, fields);
+                    result.put(key, fields);
+                }
+                return result;
+            }
+        };
+
+        for (String key : Arrays.asList("A-1", "A-2", "A-3")) {
+            receivedKeys.add(key);
+        }
+
+        Field field1 = fieldLoader.load(IssueFactory.create("A-1"), "Points");
+        assertEquals("a-1", field1.getValue().get());
+        Field field2 = fieldLoader.load(IssueFactory.create("A-2"), "Points");
+        assertEquals("a-2", field2.getValue().get());
+        Field field3 = fieldLoader.load(IssueFactory.create("A-3"), "Points");
+        assertEquals("a-3", field3.getValue().get());
+
+        assertEquals(Arrays.asList(Arrays.asList("A-1", "A-2"), Arrays.asList("A-3")), requests);
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        Schema schema = Mockito.mock(Schema.class);
+        Mockito.when(schema.findId("Unknown")).thenReturn(null);
+
+        FieldLoader fieldLoader = new FieldLoader(schema, new CacheImpl(), new ReceivedKeys(), 10) {
+            @Override
+            protected Map<String, JSONObject> fetchFields(Collection<String> keys, String field) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertNull(fieldLoader.load(IssueFactory.create("A-1"), "Unknown"));
+    }
+
+    @Test
+    public void test1c() throws Exception {
+        Schema schema = Mockito.mock(Schema.class);
+        Mockito.when(schema.findId("Points")).thenReturn("customfield_1");
+
+        FieldLoader fieldLoader = new FieldLoader(schema, new CacheImpl(), new ReceivedKeys(), 10) {
+            @Override
+            protected Map<String, JSONObject> fetchFields(Collection<String> keys, String field) {
+                // the issue exists, but the field has not been returned, so the search marked it as null
+                return Collections.singletonMap("A-1", new JSONObject().put(field, JSONObject.NULL));
+            }
+        };
+
+        assertNull(fieldLoader.load(IssueFactory.create("A-1"), "Points"));
+    }
+}
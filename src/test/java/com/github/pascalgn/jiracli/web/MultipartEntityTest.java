@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.pascalgn.jiracli.util.IOUtils;
+
+public class MultipartEntityTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test1a() throws Exception {
+        File file1 = folder.newFile("build.log");
+        IOUtils.write(file1, "Build successful");
+        File file2 = folder.newFile("report \"1\".txt");
+        IOUtils.write(file2, "");
+
+        MultipartEntity entity = new MultipartEntity(Arrays.asList(file1, file2));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        entity.writeTo(output);
+        entity.writeTo(output);
+
+        String str = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(2 * entity.getContentLength(), output.size());
+        assertTrue(entity.isRepeatable());
+
+        String boundary = entity.getContentType().getValue().split("boundary=")[1];
+        assertTrue(str.startsWith("--" + boundary + "\r\n"));
+        assertTrue(str.contains("filename=\"build.log\"\r\n"));
+        assertTrue(str.contains("\r\n\r\nBuild successful\r\n--" + boundary + "\r\n"));
+        assertTrue(str.contains("filename=\"report %221%22.txt\""));
+        assertTrue(str.endsWith("--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    public void test1b() throws Exception {
+        File file = folder.newFile("build.log");
+        IOUtils.write(file, "Build successful");
+
+        MultipartEntity entity = new MultipartEntity(Arrays.asList(file, file));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        entity.writeTo(written);
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        try (InputStream input = entity.getContent()) {
+            IOUtils.copy(input, read);
+        }
+
+        assertEquals(entity.getContentLength(), read.size());
+        assertArrayEquals(written.toByteArray(), read.toByteArray());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Pascal
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.pascalgn.jiracli.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.pascalgn.jiracli.util.Consumer;
+import com.github.pascalgn.jiracli.util.Function;
+import com.github.pascalgn.jiracli.util.Hint;
+
+public class PagedListTest {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void test1() throws Exception {
+        PagedList<String> list = new PagedList<String>(executor, 2, "/path", "values", toKey()) {
+            private int requests;
+
+            @Override
+            protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                if (requests++ == 0) {
+                    throw new IllegalStateException("Page failed");
+                }
+                return new JSONObject().put("isLast", true);
+            }
+        };
+
+        Iterator<String> it = list.iterator();
+        try {
+            it.hasNext();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Page failed", e.getMessage());
+        }
+
+        // the failed page must not be awaited again:
+        assertFalse(it.hasNext());
+        assertEquals(0, list.size());
+    }
+
+    @Test(timeout = 10000)
+    public void test2() throws Exception {
+        final List<String> requests = new ArrayList<>();
+        PagedList<String> list = new PagedList<String>(executor, 2, "/path", "values", toKey()) {
+            @Override
+            protected int fetchCount() {
+                requests.add("count");
+                return 2;
+            }
+
+            @Override
+            protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                requests.add(path);
+                consumer.accept(new JSONObject().put("key", "A-1"));
+                consumer.accept(new JSONObject().put("key", "A-2"));
+                return new JSONObject().put("isLast", true);
+            }
+        };
+
+        assertEquals(2, list.size());
+        assertEquals(Arrays.asList("/path"), requests);
+
+        // the size is known by now, so counting does not send another request:
+        assertEquals(2, list.count());
+        assertEquals(Arrays.asList("/path"), requests);
+    }
+
+    @Test(timeout = 10000)
+    public void test3() throws Exception {
+        final List<String> requests = new ArrayList<>();
+        PagedList<String> list = new PagedList<String>(executor, 2, "/path", "values", toKey()) {
+            @Override
+            protected int fetchCount() {
+                requests.add("count");
+                return 1234;
+            }
+
+            @Override
+            protected JSONObject fetch(String path, Consumer<JSONObject> consumer) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        assertEquals(1234, list.count());
+        assertEquals(1234, list.size());
+        assertEquals(Arrays.asList("count"), requests);
+    }
+
+    private static Function<JSONObject, String> toKey() {
+        return new Function<JSONObject, String>() {
+            @Override
+            public String apply(JSONObject json, Set<Hint> hints) {
+                return json.getString("key");
+            }
+        };
+    }
+}